@@ -0,0 +1,68 @@
+package com.locker.locker.benchmark;
+
+import com.locker.locker.security.CryptoUtils;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private String salt;
+    private String iv;
+    private SecretKey key;
+    private String encryptedPassword;
+    private byte[] secret;
+
+    @Setup
+    public void setUp() throws Exception {
+        salt = CryptoUtils.generateSalt();
+        iv = CryptoUtils.generateIv();
+        key = new SecretKeySpec(CryptoUtils.deriveKey("correct horse battery staple", salt), "AES");
+        encryptedPassword = CryptoUtils.encryptPassword("hunter2-but-longer", key, iv);
+        secret = CryptoUtils.seal("hunter2-but-longer", key);
+    }
+
+    @Benchmark
+    public String hashPassword() throws Exception {
+        return CryptoUtils.hashPassword("correct horse battery staple", salt);
+    }
+
+    @Benchmark
+    public String encryptPassword() throws Exception {
+        return CryptoUtils.encryptPassword("hunter2-but-longer", key, iv);
+    }
+
+    @Benchmark
+    public String decryptPassword() throws Exception {
+        return CryptoUtils.decryptPassword(encryptedPassword, key, iv);
+    }
+
+    // The binary entry format, without the Base64 steps of the two above
+    @Benchmark
+    public byte[] seal() throws Exception {
+        return CryptoUtils.seal("hunter2-but-longer", key);
+    }
+
+    @Benchmark
+    public String open() throws Exception {
+        return CryptoUtils.open(secret, key);
+    }
+
+    @Benchmark
+    public String generateSalt() {
+        return CryptoUtils.generateSalt();
+    }
+
+    @Benchmark
+    public String generateIv() {
+        return CryptoUtils.generateIv();
+    }
+}
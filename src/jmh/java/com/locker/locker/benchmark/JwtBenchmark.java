@@ -0,0 +1,47 @@
+package com.locker.locker.benchmark;
+
+import com.locker.locker.security.JwtPrincipal;
+import com.locker.locker.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "YourSecretKeyHereMakeItLongAndComplexForProductionUse");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86400000L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", 10000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("benchmark-user", "65f0c0ffee0000000000beef");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("benchmark-user", "65f0c0ffee0000000000beef");
+    }
+
+    @Benchmark
+    public Claims extractAllClaims() {
+        return jwtUtil.extractAllClaims(token);
+    }
+
+    // The path JwtAuthenticationFilter takes for a token it has already verified
+    @Benchmark
+    public JwtPrincipal verifyCached() {
+        return jwtUtil.verify(token);
+    }
+}
@@ -0,0 +1,113 @@
+package com.locker.locker.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.locker.locker.dto.PasswordEntryResponse;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.dto.PasswordSummaryWriter;
+import com.locker.locker.model.PasswordEntry;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Full listing response from the BSON the driver hands over: decoding into the summary projection and a
+// Map per entry for Jackson, against walking the raw documents with PasswordSummaryWriter.
+// Compare gc.alloc.rate.norm for the bytes allocated per listing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingSerializationBenchmark {
+
+    @Param({"1000", "10000"})
+    private int entryCount;
+
+    // Discards the response; unlike OutputStream.nullOutputStream() it survives Jackson closing it
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private final DocumentCodec documentCodec = new DocumentCodec();
+
+    private List<RawBsonDocument> documents;
+    private ObjectMapper objectMapper;
+    private MappingMongoConverter converter;
+
+    @Setup
+    public void setUp() {
+        // Jackson and Spring Data configured as Spring Boot configures them
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        // Documents shaped like the summary projection of a listing query
+        documents = new ArrayList<>(entryCount);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < entryCount; i++) {
+            PasswordEntry entry = new PasswordEntry(
+                    new ObjectId().toHexString(), null,
+                    "site-" + i + ".example.com", "user" + i + "@example.com", null, null,
+                    i % 3 == 0 ? null : "notes for entry " + i, now.minusDays(i), now, null, (long) i, null);
+            Document document = new Document();
+            converter.write(entry, document);
+            documents.add(new RawBsonDocument(document, documentCodec));
+        }
+    }
+
+    // What listings did before: BSON -> Document -> PasswordEntrySummary -> Map -> JSON
+    @Benchmark
+    public void mappedSummaries() throws IOException {
+        List<Map<String, Object>> responseList = new ArrayList<>();
+        for (RawBsonDocument raw : documents) {
+            Document document = documentCodec.decode(raw.asBsonReader(), DecoderContext.builder().build());
+            PasswordEntrySummary summary = converter.read(PasswordEntrySummary.class, document);
+            responseList.add(PasswordEntryResponse.summary(summary));
+        }
+        objectMapper.writeValue(sink, responseList);
+    }
+
+    // RawBsonDocument -> JSON
+    @Benchmark
+    public void rawSummaries() throws IOException {
+        try (JsonGenerator generator = objectMapper.writer().createGenerator(sink)) {
+            PasswordSummaryWriter writer = new PasswordSummaryWriter(objectMapper, generator);
+            generator.writeStartArray();
+            for (RawBsonDocument document : documents) {
+                writer.write(document);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.locker.locker.benchmark;
+
+import com.locker.locker.generator.GeneratedPasswords;
+import com.locker.locker.generator.PasswordGenerator;
+import com.locker.locker.security.CryptoUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Random bytes for IVs and generated passwords, from the striped DRBG pool, against seeding a fresh
+// SecureRandom per call. Each is run on one thread and on as many threads as there are cores, which is
+// where a single shared generator would start to serialize callers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomBenchmark {
+
+    private static final Map<String, Object> POLICY = Map.of("length", 20);
+
+    private PasswordGenerator passwordGenerator;
+
+    @Setup
+    public void setUp() throws IOException {
+        passwordGenerator = new PasswordGenerator(50, "");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String pooledIv() {
+        return CryptoUtils.generateIv();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String pooledIvAllCores() {
+        return CryptoUtils.generateIv();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] freshSecureRandomIv() {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        return iv;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] freshSecureRandomIvAllCores() {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        return iv;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public GeneratedPasswords generate() {
+        return passwordGenerator.generate(POLICY);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public GeneratedPasswords generateAllCores() {
+        return passwordGenerator.generate(POLICY);
+    }
+}
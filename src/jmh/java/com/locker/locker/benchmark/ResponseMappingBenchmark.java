@@ -0,0 +1,48 @@
+package com.locker.locker.benchmark;
+
+import com.locker.locker.dto.PasswordEntryResponse;
+import com.locker.locker.model.PasswordEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Entry-to-response mapping the reactive listing endpoints do for every listed entry
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    @Param({"100", "1000"})
+    private int entryCount;
+
+    private List<PasswordEntry> entries;
+
+    @Setup
+    public void setUp() {
+        entries = new ArrayList<>(entryCount);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < entryCount; i++) {
+            entries.add(new PasswordEntry(
+                    String.format("65f0c0ffee%014d", i), "65f0c0ffee0000000000beef",
+                    "site-" + i + ".example.com", "user" + i + "@example.com",
+                    "c2VjcmV0LWNpcGhlcnRleHQtYnl0ZXM=", "aXYtYnl0ZXMtMTI=",
+                    i % 3 == 0 ? null : "notes for entry " + i, now.minusDays(i), now, PasswordEntry.DATA_KEY, (long) i, null));
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapSummaries() {
+        List<Map<String, Object>> responseList = new ArrayList<>();
+        for (PasswordEntry entry : entries) {
+            responseList.add(PasswordEntryResponse.summary(entry));
+        }
+        return responseList;
+    }
+}
@@ -0,0 +1,34 @@
+package com.locker.locker.audit;
+
+// What an audit event records. The code is what the log stores, so existing codes must never change.
+public enum AuditAction {
+    REVEAL(1), // A decrypted password was returned
+    CREATE(2),
+    UPDATE(3),
+    DELETE(4),
+    IMPORT(5),
+    EXPORT(6), // Decrypted exports only; encrypted ones reveal nothing
+    MASTER_PASSWORD_CHANGE(7);
+
+    private static final AuditAction[] BY_CODE = new AuditAction[8];
+
+    static {
+        for (AuditAction action : values()) {
+            BY_CODE[action.code] = action;
+        }
+    }
+
+    final byte code;
+
+    AuditAction(int code) {
+        this.code = (byte) code;
+    }
+
+    static AuditAction fromCode(byte code) {
+        AuditAction action = code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (action == null) {
+            throw new IllegalArgumentException("Unknown audit action code " + code);
+        }
+        return action;
+    }
+}
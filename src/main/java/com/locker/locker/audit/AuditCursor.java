@@ -0,0 +1,30 @@
+package com.locker.locker.audit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position of an event in the audit log: the segment id and the record's offset in it. Unlike its time it
+// orders events exactly, even several recorded in the same millisecond. Clients only ever see the opaque
+// encoded form.
+public record AuditCursor(long segment, int offset) {
+
+    public String encode() {
+        String raw = segment + "|" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AuditCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            AuditCursor decoded = new AuditCursor(Long.parseLong(raw.substring(0, separator)),
+                    Integer.parseInt(raw.substring(separator + 1)));
+            if (decoded.segment < 1 || decoded.offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return decoded;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.locker.locker.audit;
+
+import java.time.Instant;
+
+// One audited access; entryId is null for events about the whole vault, sessionId identifies the token used
+public record AuditEvent(Instant time, AuditAction action, String userId, String entryId, String sessionId) {
+}
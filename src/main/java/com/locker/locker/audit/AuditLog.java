@@ -0,0 +1,290 @@
+package com.locker.locker.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Audit events in memory-mapped segment files (00000001.audit, ...) that rotate at a fixed size; beyond
+// max-segments the oldest file is deleted. A record is [int length][int crc32][payload] with the payload
+// [long epoch millis][byte action][userId][entryId][sessionId], each string a short length (-1 for null)
+// and UTF-8 bytes. A zero length ends the written part of a segment, and a bad checksum at the end of the
+// newest segment is a write torn by a crash, so reading stops there and the next append overwrites it.
+// Appends and flushes come from one writer thread; queries may run concurrently and see what was flushed.
+final class AuditLog implements Closeable {
+
+    private static final int HEADER_LENGTH = 8;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{8})\\.audit");
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position; // Writer only
+        private volatile int committed; // Readers stop here
+
+        private Segment(long id, Path path, int capacity) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+    private final CRC32 crc = new CRC32();
+
+    AuditLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(maxSegments, 1);
+        Files.createDirectories(directory);
+
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : paths) {
+            Matcher name = SEGMENT_NAME.matcher(path.getFileName().toString());
+            name.matches();
+            Segment segment = new Segment(Long.parseLong(name.group(1)), path, (int) Math.max(Files.size(path), segmentSize));
+            segment.position = end(segment.buffer);
+            segment.committed = segment.position;
+            segments.add(segment);
+        }
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null) {
+            // Clear a torn record, even one whose length was never written, so what is appended over it
+            // cannot be mistaken for its remains
+            for (int offset = last.position; offset < last.buffer.capacity(); offset++) {
+                if (last.buffer.get(offset) != 0) {
+                    last.buffer.put(offset, (byte) 0);
+                }
+            }
+        }
+    }
+
+    void append(AuditEvent event) throws IOException {
+        ByteBuffer payload = encode(event);
+        int recordLength = HEADER_LENGTH + payload.remaining();
+        if (recordLength > segmentSize) {
+            throw new IllegalArgumentException("Audit record of " + payload.remaining() + " bytes does not fit in a segment");
+        }
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.buffer.capacity() - segment.position < recordLength) {
+            segment = roll(segment);
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        int offset = segment.position;
+        segment.buffer.put(offset + HEADER_LENGTH, payload, 0, payload.remaining());
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putInt(offset, payload.remaining());
+        segment.position += recordLength;
+    }
+
+    // Makes appended events visible to queries and writes them to disk
+    void flush() {
+        for (Segment segment : segments) {
+            if (segment.committed != segment.position) {
+                segment.buffer.force();
+                segment.committed = segment.position;
+            }
+        }
+    }
+
+    // Up to limit events of the user before the cursor (null for the newest) and the given time (null for
+    // now), newest first
+    AuditPage recent(String userId, Instant before, AuditCursor after, int limit) {
+        byte[] wanted = userId.getBytes(StandardCharsets.UTF_8);
+        long beforeMillis = before != null ? before.toEpochMilli() : Long.MAX_VALUE;
+        // One extra match tells whether another page follows
+        int fetch = limit + 1;
+        List<AuditEvent> found = new ArrayList<>(Math.min(fetch, 1024));
+        AuditCursor last = null;
+        List<Segment> snapshot = List.copyOf(segments);
+        for (int i = snapshot.size() - 1; i >= 0 && found.size() < fetch; i--) {
+            Segment segment = snapshot.get(i);
+            int end = segment.committed;
+            if (after != null && segment.id > after.segment()) {
+                continue;
+            }
+            if (after != null && segment.id == after.segment()) {
+                end = Math.min(end, after.offset());
+            }
+            // Segments are read forwards, keeping only the newest matches each one can contribute
+            Deque<AuditEvent> newest = new ArrayDeque<>();
+            Deque<Integer> offsets = new ArrayDeque<>();
+            ByteBuffer buffer = segment.buffer.duplicate();
+            int position = 0;
+            while (end - position >= HEADER_LENGTH) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > end - position - HEADER_LENGTH) {
+                    break;
+                }
+                AuditEvent event = decodeIfMatches(buffer, position + HEADER_LENGTH, wanted, beforeMillis);
+                if (event != null) {
+                    newest.addLast(event);
+                    offsets.addLast(position);
+                    if (newest.size() > fetch - found.size()) {
+                        newest.removeFirst();
+                        offsets.removeFirst();
+                    }
+                }
+                position += HEADER_LENGTH + length;
+            }
+            while (!newest.isEmpty()) {
+                found.add(newest.removeLast());
+                int offset = offsets.removeLast();
+                if (found.size() <= limit) {
+                    last = new AuditCursor(segment.id, offset);
+                }
+            }
+        }
+        if (found.size() <= limit) {
+            return new AuditPage(found, null);
+        }
+        found.remove(limit);
+        return new AuditPage(found, last.encode());
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    private Segment roll(Segment previous) throws IOException {
+        long id = previous == null ? 1 : previous.id + 1;
+        Segment segment = new Segment(id, directory.resolve(String.format("%08d.audit", id)), segmentSize);
+        segments.add(segment);
+        if (previous != null) {
+            previous.buffer.force();
+            previous.committed = previous.position;
+        }
+        // Queries that still hold a deleted segment keep reading its mapping, which outlives the file
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.path);
+        }
+        return segment;
+    }
+
+    private ByteBuffer encode(AuditEvent event) {
+        byte[] userId = bytes(event.userId());
+        byte[] entryId = bytes(event.entryId());
+        byte[] sessionId = bytes(event.sessionId());
+        int length = 8 + 1 + 6 + length(userId) + length(entryId) + length(sessionId);
+        if (scratch.capacity() < length) {
+            scratch = ByteBuffer.allocate(length);
+        }
+        scratch.clear();
+        scratch.putLong(event.time().toEpochMilli());
+        scratch.put(event.action().code);
+        putString(userId);
+        putString(entryId);
+        putString(sessionId);
+        return scratch.flip();
+    }
+
+    private void putString(byte[] value) {
+        if (value == null) {
+            scratch.putShort((short) -1);
+        } else {
+            scratch.putShort((short) value.length);
+            scratch.put(value);
+        }
+    }
+
+    // Strings are capped at what a short length can describe
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= Short.MAX_VALUE ? bytes : Arrays.copyOf(bytes, Short.MAX_VALUE);
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    // Decodes the record at offset if it belongs to the user and is older than beforeMillis; the user id is
+    // compared as bytes, so other users' events are skipped without decoding them
+    private static AuditEvent decodeIfMatches(ByteBuffer buffer, int offset, byte[] userId, long beforeMillis) {
+        long millis = buffer.getLong(offset);
+        if (millis >= beforeMillis) {
+            return null;
+        }
+        byte action = buffer.get(offset + 8);
+        int position = offset + 9;
+        short userIdLength = buffer.getShort(position);
+        if (userIdLength != userId.length
+                || buffer.slice(position + 2, userIdLength).mismatch(ByteBuffer.wrap(userId)) != -1) {
+            return null;
+        }
+        position += 2 + userIdLength;
+        String entryId = readString(buffer, position);
+        position += 2 + Math.max(buffer.getShort(position), 0);
+        String sessionId = readString(buffer, position);
+        return new AuditEvent(Instant.ofEpochMilli(millis), AuditAction.fromCode(action),
+                new String(userId, StandardCharsets.UTF_8), entryId, sessionId);
+    }
+
+    private static String readString(ByteBuffer buffer, int position) {
+        short length = buffer.getShort(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Offset after the last intact record
+    private static int end(MappedByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (buffer.capacity() - position >= HEADER_LENGTH) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - HEADER_LENGTH) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + HEADER_LENGTH, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += HEADER_LENGTH + length;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,7 @@
+package com.locker.locker.audit;
+
+import java.util.List;
+
+// Events newest first; nextCursor continues after the last of them, and is null once nothing older is left
+public record AuditPage(List<AuditEvent> items, String nextCursor) {
+}
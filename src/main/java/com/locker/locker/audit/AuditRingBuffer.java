@@ -0,0 +1,72 @@
+package com.locker.locker.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+// Bounded multi-producer, single-consumer queue without locks. Each slot carries a sequence number: a
+// producer claims the next position with one CAS on the tail and publishes its event by advancing the
+// slot's sequence, so producers never wait for each other or for the consumer. When the buffer is full
+// offer() fails instead of blocking.
+final class AuditRingBuffer {
+
+    private final AuditEvent[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Only touched by the consumer
+
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        this.events = new AuditEvent[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(AuditEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[index] = event;
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // The consumer has not freed this slot yet
+            } else {
+                position = tail.get(); // Another producer took it
+            }
+        }
+    }
+
+    // Hands up to max published events to the consumer, oldest first; returns how many
+    int drain(Consumer<AuditEvent> consumer, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (head & mask);
+            if (sequences.getAcquire(index) != head + 1) {
+                break;
+            }
+            AuditEvent event = events[index];
+            events[index] = null;
+            sequences.setRelease(index, head + events.length);
+            head++;
+            drained++;
+            consumer.accept(event);
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return events.length;
+    }
+}
@@ -0,0 +1,110 @@
+package com.locker.locker.audit;
+
+import com.locker.locker.security.JwtPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Records password reveals and vault changes for compliance. The request thread only puts the event into
+// a lock-free ring buffer; a writer thread drains it every vault.audit.flush-interval, appends the batch
+// to the AuditLog and syncs it, so a crash loses at most one interval of events. If the buffer fills up
+// faster than the writer drains it, events are dropped and counted rather than making requests wait.
+@Component
+public class AuditTrail {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditTrail.class);
+
+    private final AuditRingBuffer buffer;
+    private final AuditLog auditLog;
+    private final LongAdder dropped = new LongAdder();
+    private final Counter written;
+    private final Counter droppedCounter;
+    private long droppedReported;
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "audit-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AuditTrail(@Value("${vault.audit.path:audit}") String path,
+                      @Value("${vault.audit.buffer-size:65536}") int bufferSize,
+                      @Value("${vault.audit.flush-interval:200}") long flushIntervalMillis, // 200 milliseconds
+                      @Value("${vault.audit.segment-size:16777216}") int segmentSize, // 16 MB
+                      @Value("${vault.audit.max-segments:64}") int maxSegments,
+                      MeterRegistry meterRegistry) throws IOException {
+        this.buffer = new AuditRingBuffer(bufferSize);
+        this.auditLog = new AuditLog(Path.of(path), segmentSize, maxSegments);
+        this.written = Counter.builder("vault.audit.events").tag("outcome", "written").register(meterRegistry);
+        this.droppedCounter = Counter.builder("vault.audit.events").tag("outcome", "dropped").register(meterRegistry);
+        Gauge.builder("vault.audit.buffer.capacity", buffer, AuditRingBuffer::capacity).register(meterRegistry);
+        writer.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(AuditAction action, JwtPrincipal principal, String entryId) {
+        record(action, principal.getUserId(), entryId, principal.getSessionId());
+    }
+
+    public void record(AuditAction action, String userId, String entryId, String sessionId) {
+        AuditEvent event = new AuditEvent(Instant.ofEpochMilli(System.currentTimeMillis()), action, userId, entryId, sessionId);
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    // A page of the user's events before the cursor (null for the newest) and the given time (null for
+    // now), newest first. Events recorded within the last flush interval may not be visible yet.
+    public AuditPage recent(String userId, Instant before, AuditCursor after, int limit) {
+        return auditLog.recent(userId, before, after, limit);
+    }
+
+    // Runs on the writer thread only
+    void flush() {
+        try {
+            int drained;
+            do {
+                drained = buffer.drain(this::append, buffer.capacity());
+                written.increment(drained);
+            } while (drained == buffer.capacity());
+            auditLog.flush();
+
+            long droppedTotal = dropped.sum();
+            if (droppedTotal != droppedReported) {
+                droppedCounter.increment(droppedTotal - droppedReported);
+                log.warn("Audit buffer full, dropped {} events", droppedTotal - droppedReported);
+                droppedReported = droppedTotal;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Audit flush failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+        auditLog.close();
+    }
+
+    private void append(AuditEvent event) {
+        try {
+            auditLog.append(event);
+        } catch (Exception e) {
+            log.warn("Could not write audit event {} of user {}: {}", event.action(), event.userId(), e.getMessage());
+        }
+    }
+}
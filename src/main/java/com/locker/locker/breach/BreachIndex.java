@@ -0,0 +1,159 @@
+package com.locker.locker.breach;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of a breach index written by BreachIndexBuilder: a header, a prefix table and the SHA-1
+// hashes of breached passwords as sorted 20-byte records. The file is memory-mapped in chunks (a single
+// mapping is limited to 2 GB); only the prefix table lives on the heap. The first PREFIX_BITS of a hash
+// select its bucket from the table, and a binary search over that bucket's records finds it, touching a
+// handful of pages however large the corpus is.
+//
+// Layout: [int magic][int version][long record count][int prefix bits][int reserved]
+//         [long first record of each prefix, 2^bits + 1 of them][records]
+public final class BreachIndex implements Closeable {
+
+    static final int MAGIC = 0x4C4B4248; // "LKBH"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 24;
+    static final int PREFIX_BITS = 16;
+    static final int RECORD_LENGTH = 20; // SHA-1
+
+    private static final int RECORDS_PER_CHUNK = (1 << 30) / RECORD_LENGTH; // About 1 GB per mapping
+    private static final int HOT_LEVELS = 8; // Probes of each bucket's search pre-faulted by a hot warm-up
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private final long[] bucketStart;
+    private final MappedByteBuffer[] chunks;
+    private volatile int touched; // Keeps the JIT from dropping the reads of a warm-up
+
+    private BreachIndex(FileChannel channel, long recordCount, long[] bucketStart, MappedByteBuffer[] chunks) {
+        this.channel = channel;
+        this.recordCount = recordCount;
+        this.bucketStart = bucketStart;
+        this.chunks = chunks;
+    }
+
+    public static BreachIndex open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(path + " is not a breach index");
+            }
+            long recordCount = header.getLong();
+            int prefixBits = header.getInt();
+            if (prefixBits != PREFIX_BITS) {
+                throw new IOException("Unsupported prefix table of " + prefixBits + " bits in " + path);
+            }
+
+            ByteBuffer table = ByteBuffer.allocate(((1 << PREFIX_BITS) + 1) * Long.BYTES);
+            readFully(channel, table, HEADER_LENGTH);
+            table.flip();
+            long[] bucketStart = new long[(1 << PREFIX_BITS) + 1];
+            table.asLongBuffer().get(bucketStart);
+
+            long dataOffset = HEADER_LENGTH + (long) table.capacity();
+            if (channel.size() != dataOffset + recordCount * RECORD_LENGTH || bucketStart[1 << PREFIX_BITS] != recordCount) {
+                throw new IOException("Breach index " + path + " is truncated or corrupt");
+            }
+
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((recordCount + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i * RECORDS_PER_CHUNK;
+                long records = Math.min(RECORDS_PER_CHUNK, recordCount - first);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * RECORD_LENGTH, records * RECORD_LENGTH);
+            }
+            return new BreachIndex(channel, recordCount, bucketStart, chunks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return recordCount;
+    }
+
+    public boolean contains(byte[] sha1) {
+        long high = ByteBuffer.wrap(sha1, 0, 8).getLong();
+        long middle = ByteBuffer.wrap(sha1, 8, 8).getLong();
+        int low = ByteBuffer.wrap(sha1, 16, 4).getInt();
+        int bucket = (int) (high >>> (Long.SIZE - PREFIX_BITS));
+
+        long from = bucketStart[bucket];
+        long to = bucketStart[bucket + 1] - 1;
+        while (from <= to) {
+            long probe = (from + to) >>> 1;
+            int comparison = compare(probe, high, middle, low);
+            if (comparison < 0) {
+                from = probe + 1;
+            } else if (comparison > 0) {
+                to = probe - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Faults in the pages the first levels of every bucket's binary search read, which every lookup
+    // passes through; the rest of the index is paged in by the lookups that need it
+    public void warmUpHot() {
+        int sum = 0;
+        for (int bucket = 0; bucket < 1 << PREFIX_BITS; bucket++) {
+            sum += touchProbes(bucketStart[bucket], bucketStart[bucket + 1] - 1, HOT_LEVELS);
+        }
+        touched = sum;
+    }
+
+    // Faults in the whole index; worth it only when the machine has memory to keep all of it cached
+    public void warmUpFull() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.load();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int touchProbes(long from, long to, int levels) {
+        if (levels == 0 || from > to) {
+            return 0;
+        }
+        long probe = (from + to) >>> 1;
+        byte value = chunks[(int) (probe / RECORDS_PER_CHUNK)].get((int) (probe % RECORDS_PER_CHUNK) * RECORD_LENGTH);
+        return value + touchProbes(from, probe - 1, levels - 1) + touchProbes(probe + 1, to, levels - 1);
+    }
+
+    private int compare(long record, long high, long middle, int low) {
+        MappedByteBuffer chunk = chunks[(int) (record / RECORDS_PER_CHUNK)];
+        int offset = (int) (record % RECORDS_PER_CHUNK) * RECORD_LENGTH;
+        int comparison = Long.compareUnsigned(chunk.getLong(offset), high);
+        if (comparison == 0) {
+            comparison = Long.compareUnsigned(chunk.getLong(offset + 8), middle);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compareUnsigned(chunk.getInt(offset + 16), low);
+        }
+        return comparison;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of breach index");
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.locker.locker.breach;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Converts the text dump of the breach corpus, one "SHA1HEX:count" line per password ordered by hash,
+// into the binary index BreachIndex maps. The dump is streamed in one pass, so memory stays flat however
+// large it is; an unsorted line aborts the build, since lookups depend on the order. Run it from the
+// application jar:
+//
+//   java -cp locker.jar -Dloader.main=com.locker.locker.breach.BreachIndexBuilder \
+//       org.springframework.boot.loader.launch.PropertiesLauncher pwned-passwords-sha1-ordered-by-hash.txt breach.idx
+public final class BreachIndexBuilder {
+
+    private BreachIndexBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BreachIndexBuilder <sha1 dump ordered by hash> <index file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        long records = build(Path.of(args[0]), Path.of(args[1]));
+        System.out.printf("Wrote %d hashes to %s in %d s%n", records, args[1], (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    static long build(Path dump, Path index) throws IOException {
+        Path partial = index.resolveSibling(index.getFileName() + ".partial");
+        long[] bucketCounts = new long[1 << BreachIndex.PREFIX_BITS];
+        long dataOffset = BreachIndex.HEADER_LENGTH + (long) (bucketCounts.length + 1) * Long.BYTES;
+        long records = 0;
+
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(dataOffset);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 20);
+            try (BufferedReader reader = Files.newBufferedReader(dump, StandardCharsets.US_ASCII)) {
+                byte[] hash = new byte[BreachIndex.RECORD_LENGTH];
+                byte[] previous = null;
+                long lineNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    parseHash(line, hash, lineNumber);
+                    if (previous != null) {
+                        int order = Arrays.compareUnsigned(previous, hash);
+                        if (order == 0) {
+                            continue;
+                        }
+                        if (order > 0) {
+                            throw new IOException("Line " + lineNumber + " is out of order; the dump must be ordered by hash");
+                        }
+                    } else {
+                        previous = new byte[BreachIndex.RECORD_LENGTH];
+                    }
+                    out.write(hash);
+                    System.arraycopy(hash, 0, previous, 0, hash.length);
+                    bucketCounts[((hash[0] & 0xFF) << 8) | (hash[1] & 0xFF)]++;
+                    records++;
+                }
+            }
+            out.flush();
+
+            // Header and prefix table go in front of the records once the counts are known
+            ByteBuffer header = ByteBuffer.allocate((int) dataOffset);
+            header.putInt(BreachIndex.MAGIC)
+                    .putInt(BreachIndex.VERSION)
+                    .putLong(records)
+                    .putInt(BreachIndex.PREFIX_BITS)
+                    .putInt(0);
+            long first = 0;
+            for (long count : bucketCounts) {
+                header.putLong(first);
+                first += count;
+            }
+            header.putLong(first);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(partial, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records;
+    }
+
+    private static void parseHash(String line, byte[] hash, long lineNumber) throws IOException {
+        int end = line.indexOf(':');
+        String hex = (end >= 0 ? line.substring(0, end) : line).trim();
+        if (hex.length() != BreachIndex.RECORD_LENGTH * 2) {
+            throw new IOException("Line " + lineNumber + " does not start with a SHA-1 hash");
+        }
+        for (int i = 0; i < hash.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IOException("Line " + lineNumber + " does not start with a SHA-1 hash");
+            }
+            hash[i] = (byte) ((high << 4) | low);
+        }
+    }
+}
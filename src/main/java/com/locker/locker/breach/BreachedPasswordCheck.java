@@ -0,0 +1,82 @@
+package com.locker.locker.breach;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Rejects passwords found in the offline breach corpus at vault.breach.index-path; without an index every
+// password passes. Lookups hash the password with SHA-1 and search the memory-mapped index, so they stay
+// off the heap. With vault.breach.warm-up set to hot or full, a background thread faults the index in at
+// startup so the first lookups do not wait on the disk; until it finishes they page in what they need.
+@Component
+public class BreachedPasswordCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(BreachedPasswordCheck.class);
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    });
+
+    private final BreachIndex index;
+
+    public BreachedPasswordCheck(@Value("${vault.breach.index-path:}") String indexPath,
+                                 @Value("${vault.breach.warm-up:hot}") String warmUp) throws IOException {
+        if (indexPath.isBlank()) {
+            this.index = null;
+            return;
+        }
+        this.index = BreachIndex.open(Path.of(indexPath));
+        log.info("Loaded breach index of {} hashes from {}", index.size(), indexPath);
+
+        if (!"none".equalsIgnoreCase(warmUp)) {
+            boolean full = "full".equalsIgnoreCase(warmUp);
+            Thread thread = new Thread(() -> {
+                long start = System.nanoTime();
+                if (full) {
+                    index.warmUpFull();
+                } else {
+                    index.warmUpHot();
+                }
+                log.info("Breach index warmed up ({}) in {} ms", full ? "full" : "hot", (System.nanoTime() - start) / 1_000_000);
+            }, "breach-index-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return index != null;
+    }
+
+    public boolean isBreached(String password) {
+        if (index == null || password == null) {
+            return false;
+        }
+        return index.contains(DIGESTS.get().digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public void check(String password) throws BreachedPasswordException {
+        if (isBreached(password)) {
+            throw new BreachedPasswordException();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.locker.locker.breach;
+
+import com.locker.locker.security.VaultAccessException;
+import org.springframework.http.HttpStatus;
+
+// The password is in the breach corpus; the client must choose another one
+public class BreachedPasswordException extends VaultAccessException {
+
+    public BreachedPasswordException() {
+        super(HttpStatus.BAD_REQUEST, "This password appears in a known data breach, please choose another one");
+    }
+}
@@ -0,0 +1,53 @@
+package com.locker.locker.config;
+
+import com.locker.locker.metrics.EndpointMetricsFilter;
+import com.locker.locker.metrics.VaultMetrics;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.boot.actuate.metrics.data.RepositoryTagsProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Tags repository timers with the endpoint like the VaultMetrics timers, and on the servlet stack
+// resolves that endpoint per request and carries it onto async request threads.
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public RepositoryTagsProvider repositoryTagsProvider() {
+        DefaultRepositoryTagsProvider defaults = new DefaultRepositoryTagsProvider();
+        return invocation -> Tags.of(defaults.repositoryTags(invocation)).and("endpoint", VaultMetrics.endpoint());
+    }
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletEndpointMetrics implements WebMvcConfigurer {
+
+        private final EndpointMetricsFilter endpointMetricsFilter = new EndpointMetricsFilter();
+
+        // Ahead of Spring Security, so JWT parsing happens inside the request's scope
+        @Bean
+        public FilterRegistrationBean<EndpointMetricsFilter> endpointMetricsFilter() {
+            FilterRegistrationBean<EndpointMetricsFilter> registration = new FilterRegistrationBean<>(endpointMetricsFilter);
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+            return registration;
+        }
+
+        // Picked up by the auto-configured task executor that runs streamed response bodies
+        @Bean
+        public TaskDecorator endpointMetricsTaskDecorator() {
+            return VaultMetrics::propagate;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(endpointMetricsFilter);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.locker.locker.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Logs virtual threads that block while pinned to their carrier (typically parking inside a
+// synchronized block), with the stack that pinned them. Active only when virtual threads are on.
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final int MAX_FRAMES = 12;
+
+    @Value("${vault.virtual-threads.pinning-threshold:20}") // milliseconds
+    private long thresholdMillis;
+
+    private RecordingStream recording;
+
+    @PostConstruct
+    public void start() {
+        recording = new RecordingStream();
+        recording.enable("jdk.VirtualThreadPinned")
+                .withThreshold(Duration.ofMillis(thresholdMillis))
+                .withStackTrace();
+        recording.onEvent("jdk.VirtualThreadPinned", this::logPinning);
+        recording.startAsync();
+        log.info("Watching for virtual thread pinning longer than {} ms", thresholdMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        recording.close();
+    }
+
+    private void logPinning(RecordedEvent event) {
+        StringBuilder stack = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            int frames = 0;
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                if (frames++ == MAX_FRAMES) {
+                    stack.append("\n\t...");
+                    break;
+                }
+                stack.append("\n\tat ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(':').append(frame.getLineNumber());
+            }
+        }
+        String thread = "?";
+        if (event.getThread() != null) {
+            String name = event.getThread().getJavaName();
+            thread = name != null && !name.isEmpty() ? name : "#" + event.getThread().getJavaThreadId();
+        }
+        log.warn("Virtual thread {} pinned its carrier for {} ms{}", thread, event.getDuration().toMillis(), stack);
+    }
+}
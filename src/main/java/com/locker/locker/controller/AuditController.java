@@ -0,0 +1,60 @@
+package com.locker.locker.controller;
+
+import com.locker.locker.audit.AuditCursor;
+import com.locker.locker.audit.AuditTrail;
+import com.locker.locker.security.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/audit")
+public class AuditController {
+
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Value("${vault.audit.default-query-size:100}")
+    private int defaultQuerySize;
+
+    @Value("${vault.audit.max-query-size:1000}")
+    private int maxQuerySize;
+
+    // The current user's reveals and vault changes, newest first, optionally only those before a time.
+    // Page back with the nextCursor of the previous page; events from the last flush interval may not be
+    // listed yet.
+    @GetMapping
+    public ResponseEntity<?> getEvents(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            int querySize = Math.min(limit != null ? limit : defaultQuerySize, maxQuerySize);
+            if (querySize < 1) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be positive");
+            }
+            Instant beforeTime = before != null ? Instant.parse(before) : null;
+            AuditCursor after = cursor != null ? AuditCursor.decode(cursor) : null;
+            return ResponseEntity.ok(auditTrail.recent(principal.getUserId(), beforeTime, after, querySize));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Before must be an ISO-8601 instant");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error retrieving audit events: " + e.getMessage());
+        }
+    }
+}
@@ -1,24 +1,45 @@
 package com.locker.locker.controller;
 
+import com.locker.locker.audit.AuditAction;
+import com.locker.locker.audit.AuditTrail;
+import com.locker.locker.breach.BreachedPasswordCheck;
 import com.locker.locker.dto.LoginDto;
 import com.locker.locker.dto.UserDto;
+import com.locker.locker.model.KdfSpec;
 import com.locker.locker.model.User;
 import com.locker.locker.repository.UserRepository;
 import com.locker.locker.security.CryptoUtils;
+import com.locker.locker.security.JwtPrincipal;
 import com.locker.locker.security.JwtUtil;
+import com.locker.locker.security.KdfExecutor;
+import com.locker.locker.security.KdfRehashService;
+import com.locker.locker.security.UserCache;
+import com.locker.locker.security.VaultAccessException;
+import com.locker.locker.security.VaultKey;
+import com.locker.locker.security.VaultKeyService;
+import com.locker.locker.security.kdf.KdfPolicy;
+import com.locker.locker.security.throttle.LoginThrottle;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/auth")
 public class AuthController {
 
@@ -28,32 +49,68 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
+    @Autowired
+    private KdfExecutor kdfExecutor;
+
+    @Autowired
+    private KdfPolicy kdfPolicy;
+
+    @Autowired
+    private KdfRehashService kdfRehashService;
+
+    @Autowired
+    private VaultKeyService vaultKeyService;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Autowired
+    private BreachedPasswordCheck breachedPasswordCheck;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody UserDto userDto) {
         try {
-            // Check if username or email already exists
-            if (userRepository.existsByUsername(userDto.getUsername())) {
-                return ResponseEntity.badRequest().body("Username is already taken!");
-            }
-
-            if (userRepository.existsByEmail(userDto.getEmail())) {
-                return ResponseEntity.badRequest().body("Email is already in use!");
-            }
+            breachedPasswordCheck.check(userDto.getPassword());
 
             // Generate salt and hash the password
             String salt = CryptoUtils.generateSalt();
-            String hashedPassword = CryptoUtils.hashPassword(userDto.getPassword(), salt);
+            KdfSpec kdf = kdfPolicy.current();
+            byte[] masterKey = kdfExecutor.call(() -> CryptoUtils.deriveKey(userDto.getPassword(), salt, kdf));
 
-            // Create new user
+            // Create new user with a fresh data key wrapped under the master key
             User user = new User();
             user.setUsername(userDto.getUsername());
             user.setEmail(userDto.getEmail());
-            user.setMasterPasswordHash(hashedPassword);
             user.setSalt(salt);
+            user.setKdf(kdf);
+            byte[] dataKey = CryptoUtils.generateDataKey();
+            try {
+                VaultKey.seal(user, dataKey, masterKey);
+            } finally {
+                Arrays.fill(dataKey, (byte) 0);
+                Arrays.fill(masterKey, (byte) 0);
+            }
 
-            userRepository.save(user);
+            // A single insert; the unique indexes reject taken usernames and emails atomically
+            userRepository.insert(user);
+            userCache.invalidate(user);
 
             return new ResponseEntity<>("User registered successfully!", HttpStatus.CREATED);
+        } catch (VaultAccessException e) {
+            return e.toResponse();
+        } catch (DuplicateKeyException e) {
+            if (e.getMessage() != null && e.getMessage().contains("email_unique")) {
+                return ResponseEntity.badRequest().body("Email is already in use!");
+            }
+            return ResponseEntity.badRequest().body("Username is already taken!");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error registering user: " + e.getMessage());
@@ -61,19 +118,33 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginDto loginDto) {
+    public ResponseEntity<?> authenticateUser(@RequestBody LoginDto loginDto, HttpServletRequest request) {
         try {
-            Optional<User> userOptional = userRepository.findByUsername(loginDto.getUsername());
+            // Refuse attempts over the limit before looking up the user or hashing anything
+            loginThrottle.check(loginDto.getUsername(), request.getRemoteAddr());
+
+            Optional<User> userOptional = userCache.findByUsername(loginDto.getUsername());
 
             if (userOptional.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password!");
             }
 
             User user = userOptional.get();
-            String hashedPassword = CryptoUtils.hashPassword(loginDto.getPassword(), user.getSalt());
-
-            if (!hashedPassword.equals(user.getMasterPasswordHash())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password!");
+            byte[] keyBytes = kdfExecutor.call(() -> CryptoUtils.deriveKey(loginDto.getPassword(), user.getSalt(), user.getKdf()));
+
+            try {
+                if (!VaultKey.verify(user, keyBytes)) {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password!");
+                }
+
+                // Upgrade hashes made with an older KDF policy; a failed upgrade must not block the login
+                try {
+                    kdfRehashService.rehashIfOutdated(user, loginDto.getPassword(), keyBytes);
+                } catch (Exception e) {
+                    log.warn("Could not rehash master password of user {}: {}", user.getId(), e.getMessage());
+                }
+            } finally {
+                Arrays.fill(keyBytes, (byte) 0);
             }
 
             // Generate JWT token
@@ -85,9 +156,30 @@ public class AuthController {
             response.put("email", user.getEmail());
 
             return ResponseEntity.ok(response);
+        } catch (VaultAccessException e) {
+            return e.toResponse();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error authenticating user: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Change the master password; only the wrapped data key is rewritten
+    @PostMapping("/change-master-password")
+    public ResponseEntity<?> changeMasterPassword(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody Map<String, String> requestBody) {
+        try {
+            breachedPasswordCheck.check(requestBody.get("newPassword"));
+            vaultKeyService.changeMasterPassword(principal,
+                    requestBody.get("currentPassword"), requestBody.get("newPassword"));
+            auditTrail.record(AuditAction.MASTER_PASSWORD_CHANGE, principal, null);
+            return ResponseEntity.ok("Master password changed successfully!");
+        } catch (VaultAccessException e) {
+            return e.toResponse();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error changing master password: " + e.getMessage());
+        }
+    }
+}
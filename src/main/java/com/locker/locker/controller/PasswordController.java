@@ -1,93 +1,420 @@
 package com.locker.locker.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.locker.locker.audit.AuditAction;
+import com.locker.locker.audit.AuditTrail;
+import com.locker.locker.breach.BreachedPasswordCheck;
+import com.locker.locker.dto.PageCursor;
 import com.locker.locker.dto.PasswordEntryDto;
+import com.locker.locker.dto.PasswordEntryResponse;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.dto.PasswordSummaryWriter;
+import com.locker.locker.generator.PasswordGenerator;
+import com.locker.locker.health.VaultHealthService;
+import com.locker.locker.metrics.VaultMetrics;
 import com.locker.locker.model.PasswordEntry;
-import com.locker.locker.model.User;
+import com.locker.locker.model.PasswordTombstone;
 import com.locker.locker.repository.PasswordRepository;
-import com.locker.locker.repository.UserRepository;
-import com.locker.locker.security.CryptoUtils;
-import com.locker.locker.security.JwtUtil;
+import com.locker.locker.repository.PasswordTombstoneRepository;
+import com.locker.locker.search.VaultSearchIndex;
+import com.locker.locker.security.JwtPrincipal;
+import com.locker.locker.security.VaultAccessException;
+import com.locker.locker.security.VaultKey;
+import com.locker.locker.security.VaultKeyService;
+import com.locker.locker.sync.RevisionLease;
+import com.locker.locker.sync.VaultRevisions;
+import com.locker.locker.sync.VaultSyncService;
+import com.locker.locker.transfer.CsvImportReader;
+import com.locker.locker.transfer.ImportListener;
+import com.locker.locker.transfer.ImportRowReader;
+import com.locker.locker.transfer.JsonImportReader;
+import com.locker.locker.transfer.VaultExporter;
+import com.locker.locker.transfer.VaultImporter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.bson.RawBsonDocument;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/passwords")
 public class PasswordController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final String MASTER_PASSWORD_HEADER = "X-Master-Password";
+
     @Autowired
     private PasswordRepository passwordRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private VaultKeyService vaultKeyService;
+
+    @Autowired
+    private VaultSearchIndex vaultSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private VaultImporter vaultImporter;
+
+    @Autowired
+    private VaultExporter vaultExporter;
+
+    @Autowired
+    private PasswordTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private VaultRevisions vaultRevisions;
+
+    @Autowired
+    private VaultSyncService vaultSyncService;
+
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Autowired
+    private VaultHealthService vaultHealthService;
+
+    @Autowired
+    private BreachedPasswordCheck breachedPasswordCheck;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private PasswordGenerator passwordGenerator;
+
+    @Value("${vault.decrypt-batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${vault.list.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${vault.list.max-page-size:200}")
+    private int maxPageSize;
 
-    // Get all password entries for the current user
+    @Value("${vault.sync.max-changes:500}")
+    private int maxChanges;
+
+    // Get all password entries for the current user, or one page of them when a limit or cursor is given.
+    // A matching If-None-Match is answered with 304 from the cached vault revision alone.
     @GetMapping
-    public ResponseEntity<?> getAllPasswords(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<StreamingResponseBody> getAllPasswords(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            ServletWebRequest webRequest) {
         try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            List<PasswordEntry> passwordEntries = passwordRepository.findByUserId(userId);
-            List<Map<String, Object>> responseList = new ArrayList<>();
-
-            for (PasswordEntry entry : passwordEntries) {
-                Map<String, Object> entryMap = Map.of(
-                    "id", entry.getId(),
-                    "website", entry.getWebsite(),
-                    "username", entry.getUsername(),
-                    "notes", entry.getNotes() != null ? entry.getNotes() : "",
-                    "createdAt", entry.getCreatedAt(),
-                    "updatedAt", entry.getUpdatedAt()
-                );
-                responseList.add(entryMap);
+            String userId = principal.getUserId();
+            if (notModified(userId, webRequest)) {
+                return null;
             }
 
-            return ResponseEntity.ok(responseList);
+            if (limit == null && cursor == null) {
+                return jsonBody(generator -> {
+                    try (Stream<RawBsonDocument> documents = passwordRepository.streamRawSummaries(userId, null, 0)) {
+                        PasswordSummaryWriter writer = new PasswordSummaryWriter(objectMapper, generator);
+                        generator.writeStartArray();
+                        for (Iterator<RawBsonDocument> it = documents.iterator(); it.hasNext(); ) {
+                            writer.write(it.next());
+                        }
+                        generator.writeEndArray();
+                    }
+                });
+            }
+
+            int pageSize = Math.min(limit != null ? limit : defaultPageSize, maxPageSize);
+            if (pageSize < 1) {
+                return textBody(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be positive"));
+            }
+            PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+
+            return jsonBody(generator -> {
+                // Fetch one extra entry to learn whether another page follows
+                try (Stream<RawBsonDocument> documents = passwordRepository.streamRawSummaries(userId, after, pageSize + 1)) {
+                    PasswordSummaryWriter writer = new PasswordSummaryWriter(objectMapper, generator);
+                    boolean hasMore = false;
+                    int written = 0;
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("items");
+                    for (Iterator<RawBsonDocument> it = documents.iterator(); it.hasNext(); ) {
+                        RawBsonDocument document = it.next();
+                        if (written == pageSize) {
+                            hasMore = true;
+                            break;
+                        }
+                        writer.write(document);
+                        written++;
+                    }
+                    generator.writeEndArray();
+                    generator.writeStringField("nextCursor", hasMore ? writer.lastCursor().encode() : null);
+                    generator.writeEndObject();
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            return textBody(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
+        } catch (Exception e) {
+            return textBody(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error retrieving passwords: " + e.getMessage()));
+        }
+    }
+
+    // Stream all password entries as newline-delimited JSON, writing each one as Mongo yields it
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllPasswords(@AuthenticationPrincipal JwtPrincipal principal) {
+        String userId = principal.getUserId();
+
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<RawBsonDocument> documents = passwordRepository.streamRawSummaries(userId, null, 0);
+                 JsonGenerator generator = objectMapper.writer().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                PasswordSummaryWriter writer = new PasswordSummaryWriter(objectMapper, generator);
+                for (Iterator<RawBsonDocument> it = documents.iterator(); it.hasNext(); ) {
+                    writer.write(it.next());
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    // Import entries from CSV (with a header row) or a JSON array of any size. The key is resolved once
+    // from the unlocked session or the X-Master-Password header; progress and per-row errors stream back as NDJSON.
+    @PostMapping(value = "/import", consumes = {CSV, MediaType.APPLICATION_JSON_VALUE}, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> importPasswords(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestHeader(value = MASTER_PASSWORD_HEADER, required = false) String masterPassword,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request) {
+        try {
+            String userId = principal.getUserId();
+            VaultKey key = vaultKeyService.resolve(principal, masterPassword);
+
+            ImportRowReader reader = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))
+                    ? new CsvImportReader(request.getInputStream())
+                    : new JsonImportReader(objectMapper, request.getInputStream());
+
+            StreamingResponseBody body = outputStream -> {
+                try (reader; SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                    try {
+                        VaultImporter.ImportResult result = vaultImporter.importRows(userId, key, reader, new ImportListener() {
+                            @Override
+                            public void onRowError(long rowNumber, String message) throws IOException {
+                                writer.write(Map.of("row", rowNumber, "error", message));
+                            }
+
+                            @Override
+                            public void onProgress(long processed, long imported, long failed) throws IOException {
+                                writer.write(Map.of("processed", processed, "imported", imported, "failed", failed));
+                                outputStream.flush();
+                            }
+                        });
+                        auditTrail.record(AuditAction.IMPORT, principal, null);
+                        writer.write(Map.of("done", true, "processed", result.processed(),
+                                "imported", result.imported(), "failed", result.failed()));
+                    } catch (Exception e) {
+                        writer.write(Map.of("done", false, "error", "Import aborted: " + e.getMessage()));
+                    }
+                }
+            };
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .body(body);
+        } catch (VaultAccessException e) {
+            return textBody(e.toResponse());
+        } catch (Exception e) {
+            return textBody(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error importing passwords: " + e.getMessage()));
+        }
+    }
+
+    // Export the vault as CSV or a JSON array, streamed from the Mongo cursor. Decrypted exports need
+    // an unlocked session or the X-Master-Password header; encrypted exports carry ciphertext and IVs.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPasswords(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestHeader(value = MASTER_PASSWORD_HEADER, required = false) String masterPassword,
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(defaultValue = "false") boolean decrypted) {
+        try {
+            String userId = principal.getUserId();
+            boolean csv = "csv".equalsIgnoreCase(format);
+            if (!csv && !"json".equalsIgnoreCase(format)) {
+                return textBody(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Format must be csv or json"));
+            }
+            VaultKey key = decrypted
+                    ? vaultKeyService.resolve(principal, masterPassword)
+                    : null;
+            if (decrypted) {
+                auditTrail.record(AuditAction.EXPORT, principal, null);
+            }
+
+            StreamingResponseBody body = outputStream -> {
+                try {
+                    if (csv) {
+                        vaultExporter.exportCsv(userId, key, outputStream);
+                    } else {
+                        vaultExporter.exportJson(userId, key, outputStream);
+                    }
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Export failed: " + e.getMessage(), e);
+                }
+            };
+
+            return ResponseEntity.ok()
+                    .contentType(csv ? MediaType.parseMediaType(CSV) : MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"vault." + (csv ? "csv" : "json") + "\"")
+                    .body(body);
+        } catch (VaultAccessException e) {
+            return textBody(e.toResponse());
+        } catch (Exception e) {
+            return textBody(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error exporting passwords: " + e.getMessage()));
+        }
+    }
+
+    // Private so shared caches never keep a vault listing, no-cache so clients revalidate with the ETag
+    private boolean notModified(String userId, ServletWebRequest webRequest) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return webRequest.checkNotModified(vaultRevisions.etag(userId));
+    }
+
+    // Streaming endpoints must declare a StreamingResponseBody, so their error messages are written through one
+    // JSON written by the handler straight to the response. Open arrays and objects are not closed on
+    // failure, so a listing cut short by an error can never parse as a complete one.
+    private ResponseEntity<StreamingResponseBody> jsonBody(JsonBodyWriter body) {
+        StreamingResponseBody streamingBody = outputStream -> {
+            try (JsonGenerator generator = objectMapper.writer().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                body.write(generator);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(streamingBody);
+    }
+
+    private interface JsonBodyWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private static ResponseEntity<StreamingResponseBody> textBody(ResponseEntity<?> response) {
+        byte[] message = String.valueOf(response.getBody()).getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(outputStream -> outputStream.write(message));
+    }
+
+    // Entries changed and ids deleted since a sync token, oldest first. Without a token the whole vault is
+    // returned; follow hasMore with the returned token. A 410 means the token is too old and the client must reload.
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            int pageSize = Math.min(limit != null ? limit : maxChanges, maxChanges);
+            if (pageSize < 1) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be positive");
+            }
+            return ResponseEntity.ok(vaultSyncService.changes(principal.getUserId(), since, pageSize));
+        } catch (VaultAccessException e) {
+            return e.toResponse();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error retrieving passwords: " + e.getMessage());
+                    .body("Error retrieving changes: " + e.getMessage());
         }
     }
 
-    // Search password entries by website
+    // Search password entries by website, username and notes, best matches first; conditional like the list
     @GetMapping("/search")
-    public ResponseEntity<?> searchPasswords(
-            @RequestHeader("Authorization") String authHeader,
-            @RequestParam String query) {
+    public ResponseEntity<StreamingResponseBody> searchPasswords(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam String query,
+            ServletWebRequest webRequest) {
         try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            List<PasswordEntry> passwordEntries = passwordRepository.findByUserIdAndWebsiteContainingIgnoreCase(userId, query);
-            List<Map<String, Object>> responseList = new ArrayList<>();
-
-            for (PasswordEntry entry : passwordEntries) {
-                Map<String, Object> entryMap = Map.of(
-                    "id", entry.getId(),
-                    "website", entry.getWebsite(),
-                    "username", entry.getUsername(),
-                    "notes", entry.getNotes() != null ? entry.getNotes() : "",
-                    "createdAt", entry.getCreatedAt(),
-                    "updatedAt", entry.getUpdatedAt()
-                );
-                responseList.add(entryMap);
+            String userId = principal.getUserId();
+            if (notModified(userId, webRequest)) {
+                return null;
             }
 
-            return ResponseEntity.ok(responseList);
+            List<PasswordEntrySummary> matches = vaultSearchIndex.search(userId, query);
+
+            return jsonBody(generator -> {
+                PasswordSummaryWriter writer = new PasswordSummaryWriter(objectMapper, generator);
+                generator.writeStartArray();
+                for (PasswordEntrySummary entry : matches) {
+                    writer.write(entry);
+                }
+                generator.writeEndArray();
+            });
+        } catch (Exception e) {
+            return textBody(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error searching passwords: " + e.getMessage()));
+        }
+    }
+
+    // Unlock the vault for this session so later reveals and edits skip key derivation
+    @PostMapping("/unlock")
+    public ResponseEntity<?> unlockVault(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody Map<String, String> requestBody) {
+        try {
+            long expiresAt = vaultKeyService.unlock(principal, requestBody.get("masterPassword"));
+
+            return ResponseEntity.ok(Map.of(
+                "message", "Vault unlocked successfully!",
+                "expiresAt", expiresAt
+            ));
+        } catch (VaultAccessException e) {
+            return e.toResponse();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error unlocking vault: " + e.getMessage());
+        }
+    }
+
+    // Lock the vault for this session, dropping its cached key
+    @PostMapping("/lock")
+    public ResponseEntity<?> lockVault(@AuthenticationPrincipal JwtPrincipal principal) {
+        try {
+            vaultKeyService.lock(principal.getSessionId());
+            return ResponseEntity.ok("Vault locked successfully!");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error searching passwords: " + e.getMessage());
+                    .body("Error locking vault: " + e.getMessage());
         }
     }
 
@@ -95,29 +422,14 @@ public class PasswordController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getPassword(
             @PathVariable String id,
-            @RequestHeader("Authorization") String authHeader,
-            @RequestBody Map<String, String> requestBody) {
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody(required = false) Map<String, String> requestBody) {
         try {
-            String masterPassword = requestBody.get("masterPassword");
-            if (masterPassword == null || masterPassword.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Master password is required");
-            }
-
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-            String username = jwtUtil.extractUsername(token);
-
-            Optional<User> userOptional = userRepository.findByUsername(username);
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not found");
-            }
+            String masterPassword = requestBody != null ? requestBody.get("masterPassword") : null;
 
-            User user = userOptional.get();
-            String hashedMasterPassword = CryptoUtils.hashPassword(masterPassword, user.getSalt());
+            String userId = principal.getUserId();
 
-            if (!hashedMasterPassword.equals(user.getMasterPasswordHash())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid master password");
-            }
+            VaultKey key = vaultKeyService.resolve(principal, masterPassword);
 
             Optional<PasswordEntry> entryOptional = passwordRepository.findById(id);
             if (entryOptional.isEmpty() || !entryOptional.get().getUserId().equals(userId)) {
@@ -125,37 +437,113 @@ public class PasswordController {
             }
 
             PasswordEntry entry = entryOptional.get();
-            String decryptedPassword = CryptoUtils.decryptPassword(
-                    entry.getEncryptedPassword(), masterPassword, user.getSalt(), entry.getIv());
-
-            Map<String, Object> response = Map.of(
-                "id", entry.getId(),
-                "website", entry.getWebsite(),
-                "username", entry.getUsername(),
-                "password", decryptedPassword,
-                "notes", entry.getNotes() != null ? entry.getNotes() : "",
-                "createdAt", entry.getCreatedAt(),
-                "updatedAt", entry.getUpdatedAt()
-            );
-
-            return ResponseEntity.ok(response);
+            String decryptedPassword = key.decrypt(entry);
+            auditTrail.record(AuditAction.REVEAL, principal, id);
+
+            return ResponseEntity.ok(PasswordEntryResponse.withPassword(entry, decryptedPassword));
+        } catch (VaultAccessException e) {
+            return e.toResponse();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error retrieving password: " + e.getMessage());
         }
     }
 
+    // Decrypt several entries at once with a single key derivation and one query
+    @PostMapping("/decrypt-batch")
+    public ResponseEntity<?> decryptBatch(
+            @RequestBody Map<String, Object> requestBody,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        try {
+            if (!(requestBody.get("ids") instanceof List<?> rawIds) || rawIds.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("A non-empty list of ids is required");
+            }
+            if (rawIds.size() > maxBatchSize) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("At most " + maxBatchSize + " entries can be decrypted per request");
+            }
+            List<String> ids = rawIds.stream().map(String::valueOf).distinct().toList();
+            String masterPassword = (String) requestBody.get("masterPassword");
+
+            String userId = principal.getUserId();
+
+            VaultKey key = vaultKeyService.resolve(principal, masterPassword);
+
+            Map<String, PasswordEntry> entriesById = new HashMap<>();
+            for (PasswordEntry entry : passwordRepository.findByUserIdAndIdIn(userId, ids)) {
+                entriesById.put(entry.getId(), entry);
+            }
+
+            // Keep the requested order; ids that are missing or belong to someone else are skipped
+            List<Map<String, Object>> responseList = ids.parallelStream()
+                    .map(entriesById::get)
+                    .filter(Objects::nonNull)
+                    .map(VaultMetrics.propagate((PasswordEntry entry) -> {
+                        try {
+                            String decryptedPassword = key.decrypt(entry);
+                            return PasswordEntryResponse.withPassword(entry, decryptedPassword);
+                        } catch (Exception e) {
+                            throw new IllegalStateException("Could not decrypt entry " + entry.getId(), e);
+                        }
+                    }))
+                    .toList();
+            for (Map<String, Object> response : responseList) {
+                auditTrail.record(AuditAction.REVEAL, principal, (String) response.get("id"));
+            }
+
+            return ResponseEntity.ok(responseList);
+        } catch (VaultAccessException e) {
+            return e.toResponse();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error decrypting passwords: " + e.getMessage());
+        }
+    }
+
+    // Report weak, reused and stale passwords across the vault. Every entry is decrypted on the server, but
+    // no password leaves it; the report is cached until the vault changes, so with an unlocked session
+    // repeat views cost neither key derivation nor decryption.
+    @PostMapping("/health")
+    public ResponseEntity<?> vaultHealth(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody(required = false) Map<String, String> requestBody) {
+        try {
+            String masterPassword = requestBody != null ? requestBody.get("masterPassword") : null;
+
+            VaultKey key = vaultKeyService.resolve(principal, masterPassword);
+
+            return ResponseEntity.ok(vaultHealthService.report(principal.getUserId(), key));
+        } catch (VaultAccessException e) {
+            return e.toResponse();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error analyzing vault: " + e.getMessage());
+        }
+    }
+
+    // Generate candidates for a new entry from a policy; nothing is stored. Fields: mode (characters or
+    // passphrase), count, length, lowercase, uppercase, digits, symbols, exclude, excludeAmbiguous, words,
+    // separator and capitalize
+    @PostMapping("/generate")
+    public ResponseEntity<?> generatePasswords(@RequestBody(required = false) Map<String, Object> requestBody) {
+        try {
+            return ResponseEntity.ok(passwordGenerator.generate(requestBody != null ? requestBody : Map.of()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error generating passwords: " + e.getMessage());
+        }
+    }
+
     // Add a new password entry
     @PostMapping
     public ResponseEntity<?> addPassword(
             @RequestBody Map<String, Object> requestBody,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         try {
             // Extract fields from request body
             String masterPassword = (String) requestBody.get("masterPassword");
-            if (masterPassword == null || masterPassword.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Master password is required");
-            }
 
             // Create PasswordEntryDto from request body
             PasswordEntryDto passwordEntryDto = new PasswordEntryDto();
@@ -164,39 +552,31 @@ public class PasswordController {
             passwordEntryDto.setPassword((String) requestBody.get("password"));
             passwordEntryDto.setNotes((String) requestBody.get("notes"));
 
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-            String username = jwtUtil.extractUsername(token);
-
-            Optional<User> userOptional = userRepository.findByUsername(username);
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not found");
-            }
-
-            User user = userOptional.get();
-            String hashedMasterPassword = CryptoUtils.hashPassword(masterPassword, user.getSalt());
+            breachedPasswordCheck.check(passwordEntryDto.getPassword());
 
-            if (!hashedMasterPassword.equals(user.getMasterPasswordHash())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid master password");
-            }
+            String userId = principal.getUserId();
 
-            String iv = CryptoUtils.generateIv();
-            String encryptedPassword = CryptoUtils.encryptPassword(
-                    passwordEntryDto.getPassword(), masterPassword, user.getSalt(), iv);
+            VaultKey key = vaultKeyService.resolve(principal, masterPassword);
 
             PasswordEntry passwordEntry = new PasswordEntry();
             passwordEntry.setUserId(userId);
             passwordEntry.setWebsite(passwordEntryDto.getWebsite());
             passwordEntry.setUsername(passwordEntryDto.getUsername());
-            passwordEntry.setEncryptedPassword(encryptedPassword);
-            passwordEntry.setIv(iv);
+            key.encrypt(passwordEntry, passwordEntryDto.getPassword());
             passwordEntry.setNotes(passwordEntryDto.getNotes());
             passwordEntry.setCreatedAt(LocalDateTime.now());
             passwordEntry.setUpdatedAt(LocalDateTime.now());
 
-            passwordRepository.save(passwordEntry);
+            try (RevisionLease revision = vaultRevisions.lease(userId, 1)) {
+                passwordEntry.setRevision(revision.first());
+                passwordRepository.save(passwordEntry);
+            }
+            vaultSearchIndex.onSaved(userId, PasswordEntrySummary.of(passwordEntry));
+            auditTrail.record(AuditAction.CREATE, principal, passwordEntry.getId());
 
             return new ResponseEntity<>("Password added successfully!", HttpStatus.CREATED);
+        } catch (VaultAccessException e) {
+            return e.toResponse();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error adding password: " + e.getMessage());
@@ -208,13 +588,10 @@ public class PasswordController {
     public ResponseEntity<?> updatePassword(
             @PathVariable String id,
             @RequestBody Map<String, Object> requestBody,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         try {
             // Extract master password from request body
             String masterPassword = (String) requestBody.get("masterPassword");
-            if (masterPassword == null || masterPassword.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Master password is required");
-            }
 
             // Create PasswordEntryDto from request body
             PasswordEntryDto passwordEntryDto = new PasswordEntryDto();
@@ -223,21 +600,11 @@ public class PasswordController {
             passwordEntryDto.setPassword((String) requestBody.get("password"));
             passwordEntryDto.setNotes((String) requestBody.get("notes"));
 
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-            String username = jwtUtil.extractUsername(token);
-
-            Optional<User> userOptional = userRepository.findByUsername(username);
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not found");
-            }
+            breachedPasswordCheck.check(passwordEntryDto.getPassword());
 
-            User user = userOptional.get();
-            String hashedMasterPassword = CryptoUtils.hashPassword(masterPassword, user.getSalt());
+            String userId = principal.getUserId();
 
-            if (!hashedMasterPassword.equals(user.getMasterPasswordHash())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid master password");
-            }
+            VaultKey key = vaultKeyService.resolve(principal, masterPassword);
 
             Optional<PasswordEntry> entryOptional = passwordRepository.findById(id);
             if (entryOptional.isEmpty() || !entryOptional.get().getUserId().equals(userId)) {
@@ -246,21 +613,23 @@ public class PasswordController {
 
             PasswordEntry existingEntry = entryOptional.get();
 
-            // Generate new IV and encrypt the password
-            String iv = CryptoUtils.generateIv();
-            String encryptedPassword = CryptoUtils.encryptPassword(
-                    passwordEntryDto.getPassword(), masterPassword, user.getSalt(), iv);
-
             existingEntry.setWebsite(passwordEntryDto.getWebsite());
             existingEntry.setUsername(passwordEntryDto.getUsername());
-            existingEntry.setEncryptedPassword(encryptedPassword);
-            existingEntry.setIv(iv);
+            // New IV, and entries still on the master key move to the data key
+            key.encrypt(existingEntry, passwordEntryDto.getPassword());
             existingEntry.setNotes(passwordEntryDto.getNotes());
             existingEntry.setUpdatedAt(LocalDateTime.now());
 
-            passwordRepository.save(existingEntry);
+            try (RevisionLease revision = vaultRevisions.lease(userId, 1)) {
+                existingEntry.setRevision(revision.first());
+                passwordRepository.save(existingEntry);
+            }
+            vaultSearchIndex.onSaved(userId, PasswordEntrySummary.of(existingEntry));
+            auditTrail.record(AuditAction.UPDATE, principal, id);
 
             return ResponseEntity.ok("Password updated successfully!");
+        } catch (VaultAccessException e) {
+            return e.toResponse();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error updating password: " + e.getMessage());
@@ -271,17 +640,22 @@ public class PasswordController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletePassword(
             @PathVariable String id,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
+            String userId = principal.getUserId();
 
             Optional<PasswordEntry> entryOptional = passwordRepository.findById(id);
             if (entryOptional.isEmpty() || !entryOptional.get().getUserId().equals(userId)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Password entry not found");
             }
 
-            passwordRepository.deleteById(id);
+            // The tombstone tells sync clients about the delete until it expires
+            try (RevisionLease revision = vaultRevisions.lease(userId, 1)) {
+                passwordRepository.deleteById(id);
+                tombstoneRepository.save(new PasswordTombstone(null, userId, id, revision.first(), new Date()));
+            }
+            vaultSearchIndex.onDeleted(userId, id);
+            auditTrail.record(AuditAction.DELETE, principal, id);
             return ResponseEntity.ok("Password deleted successfully!");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,68 @@
+package com.locker.locker.controller;
+
+import com.locker.locker.audit.AuditCursor;
+import com.locker.locker.audit.AuditTrail;
+import com.locker.locker.security.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+// WebFlux version of AuditController for the reactive profile
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/audit")
+public class ReactiveAuditController {
+
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Value("${vault.audit.default-query-size:100}")
+    private int defaultQuerySize;
+
+    @Value("${vault.audit.max-query-size:1000}")
+    private int maxQuerySize;
+
+    // The current user's reveals and vault changes, newest first, optionally only those before a time.
+    // Page back with the nextCursor of the previous page; events from the last flush interval may not be
+    // listed yet.
+    @GetMapping
+    public Mono<ResponseEntity<?>> getEvents(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        int querySize = Math.min(limit != null ? limit : defaultQuerySize, maxQuerySize);
+        if (querySize < 1) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be positive"));
+        }
+        Instant beforeTime;
+        AuditCursor after;
+        try {
+            beforeTime = before != null ? Instant.parse(before) : null;
+            after = cursor != null ? AuditCursor.decode(cursor) : null;
+        } catch (DateTimeParseException e) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Before must be an ISO-8601 instant"));
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
+        }
+
+        // The query scans the log segments, which may fault pages in from disk, so it runs off the event loop
+        return Mono.fromCallable(() -> auditTrail.recent(principal.getUserId(), beforeTime, after, querySize))
+                .subscribeOn(Schedulers.boundedElastic())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Error retrieving audit events: " + e.getMessage())));
+    }
+}
@@ -0,0 +1,154 @@
+package com.locker.locker.controller;
+
+import com.locker.locker.breach.BreachedPasswordCheck;
+import com.locker.locker.breach.BreachedPasswordException;
+import com.locker.locker.dto.LoginDto;
+import com.locker.locker.dto.UserDto;
+import com.locker.locker.model.KdfSpec;
+import com.locker.locker.model.User;
+import com.locker.locker.repository.ReactiveUserRepository;
+import com.locker.locker.security.CryptoUtils;
+import com.locker.locker.security.JwtUtil;
+import com.locker.locker.security.KdfExecutor;
+import com.locker.locker.security.KdfOverloadedException;
+import com.locker.locker.security.UserCache;
+import com.locker.locker.security.VaultAccessException;
+import com.locker.locker.security.VaultKey;
+import com.locker.locker.security.kdf.KdfPolicy;
+import com.locker.locker.security.throttle.LoginThrottle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// WebFlux version of AuthController for the reactive profile; same paths, bodies and messages
+@RestController
+@RequestMapping("/api/auth")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAuthController {
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private KdfExecutor kdfExecutor;
+
+    @Autowired
+    private KdfPolicy kdfPolicy;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private BreachedPasswordCheck breachedPasswordCheck;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<?>> registerUser(@RequestBody UserDto userDto) {
+        // A lookup touches a few pages of the mapped index, cheap enough for the event loop once warmed up
+        try {
+            breachedPasswordCheck.check(userDto.getPassword());
+        } catch (BreachedPasswordException e) {
+            return Mono.just(e.toResponse());
+        }
+        String salt = CryptoUtils.generateSalt();
+        KdfSpec kdf = kdfPolicy.current();
+        return kdfExecutor.callReactive(() -> CryptoUtils.deriveKey(userDto.getPassword(), salt, kdf))
+                .flatMap(masterKey -> {
+                    User user = new User();
+                    user.setUsername(userDto.getUsername());
+                    user.setEmail(userDto.getEmail());
+                    user.setSalt(salt);
+                    user.setKdf(kdf);
+                    byte[] dataKey = CryptoUtils.generateDataKey();
+                    try {
+                        VaultKey.seal(user, dataKey, masterKey);
+                    } catch (GeneralSecurityException e) {
+                        return Mono.error(e);
+                    } finally {
+                        Arrays.fill(dataKey, (byte) 0);
+                        Arrays.fill(masterKey, (byte) 0);
+                    }
+                    return userRepository.insert(user);
+                })
+                .doOnNext(userCache::invalidate)
+                .<ResponseEntity<?>>map(user -> new ResponseEntity<>("User registered successfully!", HttpStatus.CREATED))
+                .onErrorResume(e -> {
+                    if (e instanceof KdfOverloadedException overloaded) {
+                        return Mono.just(overloaded.toResponse());
+                    }
+                    if (e instanceof DuplicateKeyException) {
+                        if (e.getMessage() != null && e.getMessage().contains("email_unique")) {
+                            return Mono.just(ResponseEntity.badRequest().body("Email is already in use!"));
+                        }
+                        return Mono.just(ResponseEntity.badRequest().body("Username is already taken!"));
+                    }
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Error registering user: " + e.getMessage()));
+                });
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<?>> authenticateUser(@RequestBody LoginDto loginDto, ServerHttpRequest request) {
+        ResponseEntity<?> invalid = ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password!");
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String clientAddress = remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : null;
+
+        // Refuse attempts over the limit before looking up the user or hashing anything; a shared store may block
+        return Mono.fromCallable(() -> {
+                    loginThrottle.check(loginDto.getUsername(), clientAddress);
+                    return true;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(userCache.findByUsernameReactive(loginDto.getUsername()))
+                .flatMap(user -> kdfExecutor.callReactive(() -> {
+                            byte[] masterKey = CryptoUtils.deriveKey(loginDto.getPassword(), user.getSalt(), user.getKdf());
+                            try {
+                                return VaultKey.verify(user, masterKey);
+                            } finally {
+                                Arrays.fill(masterKey, (byte) 0);
+                            }
+                        })
+                        .<ResponseEntity<?>>map(verified -> {
+                            if (!verified) {
+                                return invalid;
+                            }
+
+                            String token = jwtUtil.generateToken(user.getUsername(), user.getId());
+
+                            Map<String, Object> response = new HashMap<>();
+                            response.put("token", token);
+                            response.put("username", user.getUsername());
+                            response.put("email", user.getEmail());
+
+                            return ResponseEntity.ok(response);
+                        }))
+                .defaultIfEmpty(invalid)
+                .onErrorResume(e -> Mono.just(e instanceof VaultAccessException refused
+                        ? refused.toResponse()
+                        : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error authenticating user: " + e.getMessage())));
+    }
+}
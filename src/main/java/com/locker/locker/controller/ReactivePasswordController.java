@@ -0,0 +1,414 @@
+package com.locker.locker.controller;
+
+import com.locker.locker.audit.AuditAction;
+import com.locker.locker.audit.AuditTrail;
+import com.locker.locker.breach.BreachedPasswordCheck;
+import com.locker.locker.breach.BreachedPasswordException;
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.dto.PasswordEntryResponse;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.generator.PasswordGenerator;
+import com.locker.locker.health.VaultHealthService;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.repository.ReactivePasswordRepository;
+import com.locker.locker.repository.ReactivePasswordTombstoneRepository;
+import com.locker.locker.search.VaultSearchIndex;
+import com.locker.locker.security.JwtPrincipal;
+import com.locker.locker.security.ReactiveVaultKeyService;
+import com.locker.locker.security.VaultAccessException;
+import com.locker.locker.sync.RevisionLease;
+import com.locker.locker.sync.VaultRevisions;
+import com.locker.locker.sync.VaultSyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+// WebFlux version of PasswordController for the reactive profile; same paths, bodies and messages.
+// Key derivation runs on the bounded KDF pool and batch decryption on the parallel scheduler,
+// so no event-loop thread ever hashes or blocks.
+@RestController
+@RequestMapping("/api/passwords")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePasswordController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ReactivePasswordRepository passwordRepository;
+
+    @Autowired
+    private ReactiveVaultKeyService vaultKeyService;
+
+    @Autowired
+    private VaultSearchIndex vaultSearchIndex;
+
+    @Autowired
+    private ReactivePasswordTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private VaultRevisions vaultRevisions;
+
+    @Autowired
+    private VaultSyncService vaultSyncService;
+
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Autowired
+    private VaultHealthService vaultHealthService;
+
+    @Autowired
+    private BreachedPasswordCheck breachedPasswordCheck;
+
+    @Autowired
+    private PasswordGenerator passwordGenerator;
+
+    @Value("${vault.decrypt-batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${vault.list.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${vault.list.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${vault.sync.max-changes:500}")
+    private int maxChanges;
+
+    // Get all password entries for the current user, or one page of them when a limit or cursor is given.
+    // A matching If-None-Match is answered with 304 from the cached vault revision alone.
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllPasswords(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            ServerWebExchange exchange) {
+        String userId = principal.getUserId();
+        return notModified(userId, exchange)
+                .flatMap(unchanged -> unchanged ? Mono.<ResponseEntity<?>>empty() : listPasswords(userId, limit, cursor))
+                .onErrorResume(errorResponse("Error retrieving passwords: "));
+    }
+
+    private Mono<ResponseEntity<?>> listPasswords(String userId, Integer limit, String cursor) {
+        if (limit == null && cursor == null) {
+            return passwordRepository.streamSummaries(userId)
+                    .map(PasswordEntryResponse::summary)
+                    .collectList()
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .onErrorResume(errorResponse("Error retrieving passwords: "));
+        }
+
+        int pageSize = Math.min(limit != null ? limit : defaultPageSize, maxPageSize);
+        if (pageSize < 1) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be positive"));
+        }
+
+        return Mono.fromCallable(() -> Optional.ofNullable(cursor).map(PageCursor::decode))
+                .flatMapMany(after -> passwordRepository.findSummaryPage(userId, after.orElse(null), pageSize + 1))
+                .collectList()
+                .<ResponseEntity<?>>map(page -> {
+                    // One extra entry was fetched to learn whether another page follows
+                    boolean hasMore = page.size() > pageSize;
+                    List<PasswordEntrySummary> items = hasMore ? page.subList(0, pageSize) : page;
+
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("items", items.stream().map(PasswordEntryResponse::summary).toList());
+                    response.put("nextCursor", hasMore ? PageCursor.after(items.get(items.size() - 1)).encode() : null);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage())))
+                .onErrorResume(errorResponse("Error retrieving passwords: "));
+    }
+
+    // Stream all password entries as newline-delimited JSON, writing each one as Mongo yields it
+    @GetMapping(produces = NDJSON)
+    public Flux<Map<String, Object>> streamAllPasswords(@AuthenticationPrincipal JwtPrincipal principal) {
+        return passwordRepository.streamSummaries(principal.getUserId())
+                .map(PasswordEntryResponse::summary);
+    }
+
+    // Entries changed and ids deleted since a sync token, oldest first. Without a token the whole vault is
+    // returned; follow hasMore with the returned token. A 410 means the token is too old and the client must reload.
+    @GetMapping("/changes")
+    public Mono<ResponseEntity<?>> getChanges(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = Math.min(limit != null ? limit : maxChanges, maxChanges);
+        if (pageSize < 1) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be positive"));
+        }
+
+        // The sync service reads through the blocking repositories and may wait for in-flight writes
+        return Mono.fromCallable(() -> vaultSyncService.changes(principal.getUserId(), since, pageSize))
+                .subscribeOn(Schedulers.boundedElastic())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage())))
+                .onErrorResume(errorResponse("Error retrieving changes: "));
+    }
+
+    // Search password entries by website, username and notes, best matches first; conditional like the list
+    @GetMapping("/search")
+    public Mono<ResponseEntity<?>> searchPasswords(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam String query,
+            ServerWebExchange exchange) {
+        String userId = principal.getUserId();
+        // The index is built from the blocking repository on first use, so keep it off the event loop
+        return notModified(userId, exchange)
+                .filter(unchanged -> !unchanged)
+                .flatMap(changed -> Mono.fromCallable(() -> vaultSearchIndex.search(userId, query))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .<ResponseEntity<?>>map(matches -> ResponseEntity.ok(
+                        matches.stream().map(PasswordEntryResponse::summary).toList()))
+                .onErrorResume(errorResponse("Error searching passwords: "));
+    }
+
+    // Unlock the vault for this session so later reveals and edits skip key derivation
+    @PostMapping("/unlock")
+    public Mono<ResponseEntity<?>> unlockVault(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody Map<String, String> requestBody) {
+        return vaultKeyService.unlock(principal, requestBody.get("masterPassword"))
+                .<ResponseEntity<?>>map(expiresAt -> ResponseEntity.ok(Map.of(
+                    "message", "Vault unlocked successfully!",
+                    "expiresAt", expiresAt
+                )))
+                .onErrorResume(errorResponse("Error unlocking vault: "));
+    }
+
+    // Lock the vault for this session, dropping its cached key
+    @PostMapping("/lock")
+    public Mono<ResponseEntity<?>> lockVault(@AuthenticationPrincipal JwtPrincipal principal) {
+        vaultKeyService.lock(principal.getSessionId());
+        return Mono.just(ResponseEntity.ok("Vault locked successfully!"));
+    }
+
+    // Get a specific password entry with decrypted password
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getPassword(
+            @PathVariable String id,
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody(required = false) Map<String, String> requestBody) {
+        String masterPassword = requestBody != null ? requestBody.get("masterPassword") : null;
+
+        return vaultKeyService.resolve(principal, masterPassword)
+                .flatMap(key -> passwordRepository.findById(id)
+                        .filter(entry -> entry.getUserId().equals(principal.getUserId()))
+                        .<ResponseEntity<?>>map(entry -> {
+                            try {
+                                String decryptedPassword = key.decrypt(entry);
+                                auditTrail.record(AuditAction.REVEAL, principal, id);
+                                return ResponseEntity.ok(PasswordEntryResponse.withPassword(entry, decryptedPassword));
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e.getMessage(), e);
+                            }
+                        })
+                        .defaultIfEmpty(notFound()))
+                .onErrorResume(errorResponse("Error retrieving password: "));
+    }
+
+    // Decrypt several entries at once with a single key derivation and one query
+    @PostMapping("/decrypt-batch")
+    public Mono<ResponseEntity<?>> decryptBatch(
+            @RequestBody Map<String, Object> requestBody,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        if (!(requestBody.get("ids") instanceof List<?> rawIds) || rawIds.isEmpty()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("A non-empty list of ids is required"));
+        }
+        if (rawIds.size() > maxBatchSize) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("At most " + maxBatchSize + " entries can be decrypted per request"));
+        }
+        List<String> ids = rawIds.stream().map(String::valueOf).distinct().toList();
+        String masterPassword = (String) requestBody.get("masterPassword");
+
+        return vaultKeyService.resolve(principal, masterPassword)
+                .flatMap(key -> passwordRepository.findByUserIdAndIdIn(principal.getUserId(), ids)
+                        .collectMap(PasswordEntry::getId)
+                        // Keep the requested order; ids that are missing or belong to someone else are skipped
+                        .flatMapMany(entriesById -> Flux.fromIterable(ids).mapNotNull(entriesById::get))
+                        .flatMapSequential(entry -> Mono.fromCallable(() -> PasswordEntryResponse.withPassword(entry, key.decrypt(entry)))
+                                .subscribeOn(Schedulers.parallel()))
+                        .doOnNext(response -> auditTrail.record(AuditAction.REVEAL, principal, (String) response.get("id")))
+                        .collectList())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(errorResponse("Error decrypting passwords: "));
+    }
+
+    // Report weak, reused and stale passwords across the vault; cached until the vault changes
+    @PostMapping("/health")
+    public Mono<ResponseEntity<?>> vaultHealth(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestBody(required = false) Map<String, String> requestBody) {
+        String masterPassword = requestBody != null ? requestBody.get("masterPassword") : null;
+
+        // The analysis reads the vault through the blocking repository and decrypts on the fork-join pool
+        return vaultKeyService.resolve(principal, masterPassword)
+                .flatMap(key -> Mono.fromCallable(() -> vaultHealthService.report(principal.getUserId(), key))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(errorResponse("Error analyzing vault: "));
+    }
+
+    // Generate candidates for a new entry from a policy; nothing is stored. Generation takes microseconds,
+    // so it runs on the event loop
+    @PostMapping("/generate")
+    public Mono<ResponseEntity<?>> generatePasswords(@RequestBody(required = false) Map<String, Object> requestBody) {
+        return Mono.fromCallable(() -> passwordGenerator.generate(requestBody != null ? requestBody : Map.of()))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage())))
+                .onErrorResume(errorResponse("Error generating passwords: "));
+    }
+
+    // Add a new password entry
+    @PostMapping
+    public Mono<ResponseEntity<?>> addPassword(
+            @RequestBody Map<String, Object> requestBody,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        String masterPassword = (String) requestBody.get("masterPassword");
+        String userId = principal.getUserId();
+        try {
+            breachedPasswordCheck.check((String) requestBody.get("password"));
+        } catch (BreachedPasswordException e) {
+            return Mono.just(e.toResponse());
+        }
+
+        return vaultKeyService.resolve(principal, masterPassword)
+                .flatMap(key -> {
+                    try {
+                        PasswordEntry passwordEntry = new PasswordEntry();
+                        passwordEntry.setUserId(userId);
+                        passwordEntry.setWebsite((String) requestBody.get("website"));
+                        passwordEntry.setUsername((String) requestBody.get("username"));
+                        key.encrypt(passwordEntry, (String) requestBody.get("password"));
+                        passwordEntry.setNotes((String) requestBody.get("notes"));
+                        passwordEntry.setCreatedAt(LocalDateTime.now());
+                        passwordEntry.setUpdatedAt(LocalDateTime.now());
+                        return withRevision(userId, revision -> {
+                            passwordEntry.setRevision(revision);
+                            return passwordRepository.save(passwordEntry);
+                        });
+                    } catch (Exception e) {
+                        return Mono.error(e);
+                    }
+                })
+                .flatMap(saved -> indexSaved(userId, saved)
+                        .doOnSuccess(done -> auditTrail.record(AuditAction.CREATE, principal, saved.getId())))
+                .<ResponseEntity<?>>thenReturn(new ResponseEntity<>("Password added successfully!", HttpStatus.CREATED))
+                .onErrorResume(errorResponse("Error adding password: "));
+    }
+
+    // Update an existing password entry
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> updatePassword(
+            @PathVariable String id,
+            @RequestBody Map<String, Object> requestBody,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        String masterPassword = (String) requestBody.get("masterPassword");
+        String userId = principal.getUserId();
+        try {
+            breachedPasswordCheck.check((String) requestBody.get("password"));
+        } catch (BreachedPasswordException e) {
+            return Mono.just(e.toResponse());
+        }
+
+        return vaultKeyService.resolve(principal, masterPassword)
+                .flatMap(key -> passwordRepository.findById(id)
+                        .filter(entry -> entry.getUserId().equals(userId))
+                        .flatMap(existingEntry -> {
+                            try {
+                                existingEntry.setWebsite((String) requestBody.get("website"));
+                                existingEntry.setUsername((String) requestBody.get("username"));
+                                // New IV, and entries still on the master key move to the data key
+                                key.encrypt(existingEntry, (String) requestBody.get("password"));
+                                existingEntry.setNotes((String) requestBody.get("notes"));
+                                existingEntry.setUpdatedAt(LocalDateTime.now());
+                                return withRevision(userId, revision -> {
+                                    existingEntry.setRevision(revision);
+                                    return passwordRepository.save(existingEntry);
+                                });
+                            } catch (Exception e) {
+                                return Mono.error(e);
+                            }
+                        })
+                        .flatMap(saved -> indexSaved(userId, saved)
+                                .doOnSuccess(done -> auditTrail.record(AuditAction.UPDATE, principal, id))
+                                .<ResponseEntity<?>>thenReturn(ResponseEntity.ok("Password updated successfully!")))
+                        .defaultIfEmpty(notFound()))
+                .onErrorResume(errorResponse("Error updating password: "));
+    }
+
+    // Delete a password entry
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<?>> deletePassword(
+            @PathVariable String id,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        String userId = principal.getUserId();
+
+        return passwordRepository.findById(id)
+                .filter(entry -> entry.getUserId().equals(userId))
+                .flatMap(entry -> withRevision(userId, revision -> passwordRepository.deleteById(id)
+                                .then(tombstoneRepository.save(new PasswordTombstone(null, userId, id, revision, new Date()))))
+                        .then(Mono.fromRunnable(() -> vaultSearchIndex.onDeleted(userId, id))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                        .doOnSuccess(done -> auditTrail.record(AuditAction.DELETE, principal, id))
+                        .<ResponseEntity<?>>thenReturn(ResponseEntity.ok("Password deleted successfully!")))
+                .defaultIfEmpty(notFound())
+                .onErrorResume(errorResponse("Error deleting password: "));
+    }
+
+    // Private so shared caches never keep a vault listing, no-cache so clients revalidate with the ETag.
+    // The revision is usually cached; a miss reads the user document, so it runs off the event loop.
+    private Mono<Boolean> notModified(String userId, ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().setCacheControl(CacheControl.noCache().cachePrivate());
+        return Mono.fromCallable(() -> vaultRevisions.etag(userId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(exchange::checkNotModified);
+    }
+
+    // Runs a write while holding a freshly allocated revision; the allocation blocks, so it runs off the event loop
+    private <T> Mono<T> withRevision(String userId, Function<Long, Mono<T>> write) {
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> vaultRevisions.lease(userId, 1)).subscribeOn(Schedulers.boundedElastic()),
+                lease -> write.apply(lease.first()),
+                lease -> Mono.fromRunnable(lease::close));
+    }
+
+    // Index updates may wait for an in-flight blocking index build, so they run off the event loop
+    private Mono<Void> indexSaved(String userId, PasswordEntry saved) {
+        return Mono.<Void>fromRunnable(() -> vaultSearchIndex.onSaved(userId, PasswordEntrySummary.of(saved)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static ResponseEntity<?> notFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Password entry not found");
+    }
+
+    private static Function<Throwable, Mono<ResponseEntity<?>>> errorResponse(String prefix) {
+        return e -> Mono.just(e instanceof VaultAccessException vaultAccess
+                ? vaultAccess.toResponse()
+                : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(prefix + e.getMessage()));
+    }
+}
@@ -0,0 +1,40 @@
+package com.locker.locker.dto;
+
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Keyset position in a vault listing ordered by (updatedAt, id) descending.
+// Clients only ever see the opaque encoded form.
+@Value
+public class PageCursor {
+    LocalDateTime updatedAt;
+    String id;
+
+    public static PageCursor after(PasswordEntrySummary entry) {
+        return new PageCursor(entry.getUpdatedAt(), entry.getId());
+    }
+
+    public String encode() {
+        String raw = updatedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            String id = raw.substring(separator + 1);
+            // Rejected here so listings that stream their body never fail on a bad cursor halfway
+            if (!ObjectId.isValid(id)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.locker.locker.dto;
+
+import com.locker.locker.model.PasswordEntry;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Response bodies shared by the listing and reveal endpoints
+public class PasswordEntryResponse {
+
+    private PasswordEntryResponse() {
+    }
+
+    // Entry metadata without any secret material
+    public static Map<String, Object> summary(PasswordEntry entry) {
+        return body(entry.getId(), entry.getWebsite(), entry.getUsername(), entry.getNotes(),
+                entry.getCreatedAt(), entry.getUpdatedAt());
+    }
+
+    public static Map<String, Object> summary(PasswordEntrySummary entry) {
+        return body(entry.getId(), entry.getWebsite(), entry.getUsername(), entry.getNotes(),
+                entry.getCreatedAt(), entry.getUpdatedAt());
+    }
+
+    // Entry metadata together with the decrypted password
+    public static Map<String, Object> withPassword(PasswordEntry entry, String decryptedPassword) {
+        Map<String, Object> body = summary(entry);
+        body.put("password", decryptedPassword);
+        return body;
+    }
+
+    // Any field may be missing on stored entries (imports, older clients), which Map.of would reject
+    private static Map<String, Object> body(String id, String website, String username, String notes,
+                                            LocalDateTime createdAt, LocalDateTime updatedAt) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", id);
+        body.put("website", website != null ? website : "");
+        body.put("username", username != null ? username : "");
+        body.put("notes", notes != null ? notes : "");
+        body.put("createdAt", createdAt);
+        body.put("updatedAt", updatedAt);
+        return body;
+    }
+}
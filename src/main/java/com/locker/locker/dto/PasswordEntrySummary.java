@@ -0,0 +1,27 @@
+package com.locker.locker.dto;
+
+import com.locker.locker.model.PasswordEntry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Listing projection of PasswordEntry; the ciphertext fields are never read from Mongo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PasswordEntrySummary {
+    private String id;
+    private String website;
+    private String username;
+    private String notes;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long revision;
+
+    public static PasswordEntrySummary of(PasswordEntry entry) {
+        return new PasswordEntrySummary(entry.getId(), entry.getWebsite(), entry.getUsername(),
+                entry.getNotes(), entry.getCreatedAt(), entry.getUpdatedAt(), entry.getRevision());
+    }
+}
@@ -0,0 +1,118 @@
+package com.locker.locker.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.io.ByteBufferBsonInput;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Writes listing entries straight to a generator as the same objects PasswordEntryResponse.summary builds.
+// Raw documents are walked field by field, so no entity, map or BsonValue is created per entry.
+public class PasswordSummaryWriter {
+
+    private final JsonGenerator generator;
+    private final SerializerProvider serializers;
+    private final JsonSerializer<Object> dateSerializer;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private String lastId;
+    private LocalDateTime lastUpdatedAt;
+
+    public PasswordSummaryWriter(ObjectMapper objectMapper, JsonGenerator generator) throws JsonMappingException {
+        this.generator = generator;
+        this.serializers = objectMapper.getSerializerProviderInstance();
+        // Dates go through the configured serializer so spring.jackson.* settings still apply
+        this.dateSerializer = serializers.findValueSerializer(LocalDateTime.class);
+    }
+
+    // A document read with PasswordRepositoryCustom.streamRawSummaries
+    public void write(RawBsonDocument document) throws IOException {
+        String id = null;
+        String website = null;
+        String username = null;
+        String notes = null;
+        LocalDateTime createdAt = null;
+        LocalDateTime updatedAt = null;
+
+        // Reads the document's own bytes; asBsonReader() costs about ten times the allocation
+        try (BsonReader reader = new BsonBinaryReader(new ByteBufferBsonInput(document.getByteBuffer()))) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case "_id" -> id = reader.getCurrentBsonType() == BsonType.OBJECT_ID
+                            ? reader.readObjectId().toHexString()
+                            : readString(reader);
+                    case "website" -> website = readString(reader);
+                    case "username" -> username = readString(reader);
+                    case "notes" -> notes = readString(reader);
+                    case "createdAt" -> createdAt = readDate(reader);
+                    case "updatedAt" -> updatedAt = readDate(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+        }
+        write(id, website, username, notes, createdAt, updatedAt);
+    }
+
+    public void write(PasswordEntrySummary entry) throws IOException {
+        write(entry.getId(), entry.getWebsite(), entry.getUsername(), entry.getNotes(),
+                entry.getCreatedAt(), entry.getUpdatedAt());
+    }
+
+    // Position after the last entry written, for the next page of a keyset listing
+    public PageCursor lastCursor() {
+        return new PageCursor(lastUpdatedAt, lastId);
+    }
+
+    private void write(String id, String website, String username, String notes,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", id);
+        generator.writeStringField("website", website);
+        generator.writeStringField("username", username != null ? username : "");
+        generator.writeStringField("notes", notes != null ? notes : "");
+        writeDate("createdAt", createdAt);
+        writeDate("updatedAt", updatedAt);
+        generator.writeEndObject();
+
+        lastId = id;
+        lastUpdatedAt = updatedAt;
+    }
+
+    private void writeDate(String name, LocalDateTime value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            dateSerializer.serialize(value, generator, serializers);
+        }
+    }
+
+    private static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    // Same conversion Spring Data applies when it maps a BSON date to LocalDateTime
+    private LocalDateTime readDate(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.DATE_TIME) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.readDateTime()), zone);
+        }
+        reader.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.locker.locker.dto;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in a user's change history: everything up to revision has been seen.
+// issuedAt lets the server refuse tokens older than the tombstone retention.
+@Value
+public class SyncToken {
+    long revision;
+    long issuedAt;
+
+    public String encode() {
+        String raw = revision + "|" + issuedAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SyncToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new SyncToken(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid sync token", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.locker.locker.generator;
+
+import java.util.List;
+
+// Candidates of one policy; entropyBits is what each carries against an attacker who knows the policy
+public record GeneratedPasswords(List<String> candidates, double entropyBits) {
+}
@@ -0,0 +1,226 @@
+package com.locker.locker.generator;
+
+import com.locker.locker.security.DrbgPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Generates passwords and passphrases from a policy given as request fields. Character passwords draw
+// every position from the allowed alphabet and are redrawn until each requested class appears, so all
+// passwords the policy allows are equally likely. Passphrases pick words from the list at
+// vault.generator.wordlist-path (one word per line; the dice numbers of the EFF lists are skipped).
+// Randomness comes from the shared DRBG pool, read in blocks.
+@Component
+public class PasswordGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordGenerator.class);
+
+    private static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
+    private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String DIGITS = "0123456789";
+    private static final String SYMBOLS = "!@#$%^&*()-_=+[]{};:,.<>/?~";
+    private static final String AMBIGUOUS = "Il1O0o|`'\"";
+
+    private static final int MIN_LENGTH = 4;
+    private static final int MAX_LENGTH = 128;
+    private static final int MIN_WORDS = 3;
+    private static final int MAX_WORDS = 20;
+    private static final int MAX_TRIES = 1000;
+
+    private final int maxCount;
+    private final String[] words;
+
+    public PasswordGenerator(@Value("${vault.generator.max-count:50}") int maxCount,
+                             @Value("${vault.generator.wordlist-path:}") String wordlistPath) throws IOException {
+        this.maxCount = maxCount;
+        this.words = wordlistPath.isBlank() ? new String[0] : loadWords(Path.of(wordlistPath));
+        if (words.length > 0) {
+            log.info("Loaded {} passphrase words from {}", words.length, wordlistPath);
+        }
+    }
+
+    public GeneratedPasswords generate(Map<String, Object> policy) {
+        int count = intField(policy, "count", 1);
+        if (count < 1 || count > maxCount) {
+            throw new IllegalArgumentException("Count must be between 1 and " + maxCount);
+        }
+        String mode = String.valueOf(policy.getOrDefault("mode", "characters"));
+        return switch (mode) {
+            case "characters" -> characters(policy, count);
+            case "passphrase" -> passphrase(policy, count);
+            default -> throw new IllegalArgumentException("Mode must be characters or passphrase");
+        };
+    }
+
+    private GeneratedPasswords characters(Map<String, Object> policy, int count) {
+        int length = intField(policy, "length", 20);
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Length must be between " + MIN_LENGTH + " and " + MAX_LENGTH);
+        }
+        String excluded = String.valueOf(policy.getOrDefault("exclude", ""))
+                + (booleanField(policy, "excludeAmbiguous", false) ? AMBIGUOUS : "");
+
+        List<char[]> classes = new ArrayList<>();
+        addClass(classes, policy, "lowercase", LOWERCASE, excluded);
+        addClass(classes, policy, "uppercase", UPPERCASE, excluded);
+        addClass(classes, policy, "digits", DIGITS, excluded);
+        addClass(classes, policy, "symbols", SYMBOLS, excluded);
+        if (classes.isEmpty()) {
+            throw new IllegalArgumentException("At least one character class must be enabled");
+        }
+        if (length < classes.size()) {
+            throw new IllegalArgumentException("Length must be at least the number of character classes");
+        }
+
+        StringBuilder alphabetBuilder = new StringBuilder();
+        classes.forEach(alphabetBuilder::append);
+        char[] alphabet = alphabetBuilder.toString().toCharArray();
+        // Class of each alphabet position, so a draw can tick off the classes it has covered
+        int[] classOf = new int[alphabet.length];
+        for (int c = 0, position = 0; c < classes.size(); c++) {
+            for (int i = 0; i < classes.get(c).length; i++) {
+                classOf[position++] = c;
+            }
+        }
+        int allClasses = (1 << classes.size()) - 1;
+
+        List<String> candidates = new ArrayList<>(count);
+        char[] password = new char[length];
+        try (RandomIndexes random = new RandomIndexes(DrbgPool.current())) {
+            for (int n = 0; n < count; n++) {
+                int covered;
+                int tries = 0;
+                do {
+                    if (++tries > MAX_TRIES) {
+                        throw new IllegalArgumentException("Policy is too restrictive to satisfy");
+                    }
+                    covered = 0;
+                    for (int i = 0; i < length; i++) {
+                        int index = random.next(alphabet.length);
+                        password[i] = alphabet[index];
+                        covered |= 1 << classOf[index];
+                    }
+                } while (covered != allClasses);
+                candidates.add(new String(password));
+            }
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+        return new GeneratedPasswords(candidates, entropyBits(classes, length));
+    }
+
+    private GeneratedPasswords passphrase(Map<String, Object> policy, int count) {
+        if (words.length < 2) {
+            throw new IllegalArgumentException("Passphrases are not available: no wordlist is configured");
+        }
+        int wordCount = intField(policy, "words", 6);
+        if (wordCount < MIN_WORDS || wordCount > MAX_WORDS) {
+            throw new IllegalArgumentException("Words must be between " + MIN_WORDS + " and " + MAX_WORDS);
+        }
+        String separator = String.valueOf(policy.getOrDefault("separator", "-"));
+        boolean capitalize = booleanField(policy, "capitalize", false);
+
+        List<String> candidates = new ArrayList<>(count);
+        try (RandomIndexes random = new RandomIndexes(DrbgPool.current())) {
+            for (int n = 0; n < count; n++) {
+                StringBuilder passphrase = new StringBuilder();
+                for (int i = 0; i < wordCount; i++) {
+                    String word = words[random.next(words.length)];
+                    if (i > 0) {
+                        passphrase.append(separator);
+                    }
+                    passphrase.append(capitalize ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                }
+                candidates.add(passphrase.toString());
+            }
+        }
+        return new GeneratedPasswords(candidates, wordCount * log2(words.length));
+    }
+
+    private static void addClass(List<char[]> classes, Map<String, Object> policy, String field, String characters,
+                                 String excluded) {
+        if (!booleanField(policy, field, true)) {
+            return;
+        }
+        StringBuilder allowed = new StringBuilder();
+        for (char c : characters.toCharArray()) {
+            if (excluded.indexOf(c) < 0) {
+                allowed.append(c);
+            }
+        }
+        if (allowed.isEmpty()) {
+            throw new IllegalArgumentException("Every character of the " + field + " class is excluded");
+        }
+        classes.add(allowed.toString().toCharArray());
+    }
+
+    // log2 of the number of passwords containing every class: all strings over the alphabet, minus those
+    // missing some class, by inclusion-exclusion over the subsets of missing classes
+    private static double entropyBits(List<char[]> classes, int length) {
+        int alphabetSize = classes.stream().mapToInt(characters -> characters.length).sum();
+        double total = 0;
+        for (int missing = 0; missing < 1 << classes.size(); missing++) {
+            int size = alphabetSize;
+            for (int c = 0; c < classes.size(); c++) {
+                if ((missing & (1 << c)) != 0) {
+                    size -= classes.get(c).length;
+                }
+            }
+            // Scaled by alphabetSize^length so large lengths stay within double range
+            double share = Math.pow((double) size / alphabetSize, length);
+            total += Integer.bitCount(missing) % 2 == 0 ? share : -share;
+        }
+        return length * log2(alphabetSize) + log2(total);
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    private static int intField(Map<String, Object> policy, String field, int defaultValue) {
+        Object value = policy.get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+    }
+
+    private static boolean booleanField(Map<String, Object> policy, String field, boolean defaultValue) {
+        Object value = policy.get(field);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.toString());
+    }
+
+    private static String[] loadWords(Path path) throws IOException {
+        Set<String> unique = new LinkedHashSet<>();
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            lines.map(String::strip)
+                    .map(line -> line.replaceFirst("^\\d+\\s+", ""))
+                    .filter(word -> !word.isEmpty() && !word.startsWith("#"))
+                    .forEach(unique::add);
+        }
+        if (unique.size() > 65536) {
+            throw new IOException("Wordlist " + path + " has more than 65536 words");
+        }
+        return unique.toArray(String[]::new);
+    }
+}
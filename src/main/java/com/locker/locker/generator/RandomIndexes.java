@@ -0,0 +1,48 @@
+package com.locker.locker.generator;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Uniform indexes from a block of DRBG output. Fetching bytes in bulk takes the generator's lock once per
+// block instead of once per character; rejection sampling keeps every index equally likely.
+final class RandomIndexes implements AutoCloseable {
+
+    private final SecureRandom random;
+    private final byte[] block = new byte[256];
+    private int position = block.length;
+
+    RandomIndexes(SecureRandom random) {
+        this.random = random;
+    }
+
+    // Uniform in [0, bound) for bounds up to 65536
+    int next(int bound) {
+        if (bound <= 256) {
+            int limit = 256 - 256 % bound;
+            int value;
+            do {
+                value = nextByte();
+            } while (value >= limit);
+            return value % bound;
+        }
+        int limit = 65536 - 65536 % bound;
+        int value;
+        do {
+            value = (nextByte() << 8) | nextByte();
+        } while (value >= limit);
+        return value % bound;
+    }
+
+    @Override
+    public void close() {
+        Arrays.fill(block, (byte) 0);
+    }
+
+    private int nextByte() {
+        if (position == block.length) {
+            random.nextBytes(block);
+            position = 0;
+        }
+        return block[position++] & 0xFF;
+    }
+}
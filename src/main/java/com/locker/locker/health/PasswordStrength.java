@@ -0,0 +1,53 @@
+package com.locker.locker.health;
+
+// Scores a password from 0 (very weak) to 4 (very strong) by estimating its entropy from length and the
+// character classes it uses. Repeated characters add nothing and runs like "abc" or "321" count half,
+// so "aaaaaaaa" and "12345678" score as the short strings they effectively are. Works on the UTF-8
+// bytes, so the plaintext never has to become a String; non-ASCII characters count as one wide class.
+final class PasswordStrength {
+
+    static final int WEAK_BELOW = 2;
+
+    private PasswordStrength() {
+    }
+
+    static int score(byte[] utf8) {
+        boolean lower = false, upper = false, digit = false, symbol = false, other = false;
+        int characters = 0;
+        double effectiveLength = 0;
+        int previous = -1;
+        for (int i = 0; i < utf8.length; ) {
+            int c = utf8[i] & 0xFF;
+            int length = c < 0x80 ? 1 : c < 0xE0 ? 2 : c < 0xF0 ? 3 : 4;
+            // Whole code point, so different characters sharing a lead byte are not taken for repeats
+            for (int j = 1; j < length && i + j < utf8.length; j++) {
+                c = (c << 6) | (utf8[i + j] & 0x3F);
+            }
+            i += length;
+            characters++;
+            if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (length == 1) {
+                symbol = true;
+            } else {
+                other = true;
+            }
+            if (c != previous) {
+                effectiveLength += Math.abs(c - previous) == 1 ? 0.5 : 1;
+            }
+            previous = c;
+        }
+
+        int pool = (lower ? 26 : 0) + (upper ? 26 : 0) + (digit ? 10 : 0) + (symbol ? 33 : 0) + (other ? 100 : 0);
+        if (pool == 0) {
+            return 0;
+        }
+        double bits = effectiveLength * (Math.log(pool) / Math.log(2));
+        int score = bits < 28 ? 0 : bits < 36 ? 1 : bits < 60 ? 2 : bits < 80 ? 3 : 4;
+        return characters < 8 ? Math.min(score, 1) : score;
+    }
+}
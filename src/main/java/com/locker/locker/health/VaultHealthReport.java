@@ -0,0 +1,15 @@
+package com.locker.locker.health;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Counts over the whole vault and the entries with at least one problem, newest first. Entries sharing
+// a password have the same reuseGroup; no password or hash of one is part of the report.
+public record VaultHealthReport(long revision, Instant generatedAt, int total, int weak, int reused, int stale,
+                                List<EntryHealth> entries) {
+
+    public record EntryHealth(String id, String website, String username, int strength, boolean weak,
+                              Integer reuseGroup, int reusedWith, boolean stale, LocalDateTime updatedAt) {
+    }
+}
@@ -0,0 +1,169 @@
+package com.locker.locker.health;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.locker.locker.metrics.VaultMetrics;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.security.DrbgPool;
+import com.locker.locker.security.VaultKey;
+import com.locker.locker.sync.VaultRevisions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Finds weak, reused and stale passwords in a vault. Entries are decrypted in parallel on the fork-join
+// pool; each plaintext is scored and reduced to a 64-bit fingerprint, then zeroed before the worker moves
+// on. Fingerprints are salted per analysis, and reuse is found by sorting them, without boxing or a map
+// of plaintexts. Reports are cached per user and reused while the vault revision is unchanged, weighed by
+// their entry count like the search indexes.
+@Component
+public class VaultHealthService {
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Autowired
+    private VaultRevisions vaultRevisions;
+
+    private final long staleAfterDays;
+
+    private final Cache<String, VaultHealthReport> reports;
+
+    public VaultHealthService(@Value("${vault.health.stale-after-days:365}") long staleAfterDays,
+                              @Value("${vault.health.max-cached-entries:200000}") long maxCachedEntries,
+                              @Value("${vault.health.idle-ttl:1800000}") long idleTtlMillis) { // 30 minutes in milliseconds
+        this.staleAfterDays = staleAfterDays;
+        this.reports = Caffeine.newBuilder()
+                .maximumWeight(maxCachedEntries)
+                .weigher((String userId, VaultHealthReport report) -> Math.max(1, report.entries().size()))
+                .expireAfterAccess(idleTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // The key must have been resolved for this user, even when the cached report is returned
+    public VaultHealthReport report(String userId, VaultKey key) {
+        // Read before the entries, so a write landing during the analysis makes the next request redo it
+        long revision = vaultRevisions.currentRevision(userId);
+        VaultHealthReport cached = reports.getIfPresent(userId);
+        if (cached != null && cached.revision() == revision) {
+            return cached;
+        }
+        VaultHealthReport report = analyze(userId, key, revision);
+        reports.put(userId, report);
+        return report;
+    }
+
+    private VaultHealthReport analyze(String userId, VaultKey key, long revision) {
+        List<PasswordEntry> entries;
+        try (Stream<PasswordEntry> stream = passwordRepository.streamEntries(userId)) {
+            entries = stream.toList();
+        }
+        int count = entries.size();
+        long[] fingerprints = new long[count];
+        int[] strengths = new int[count];
+        byte[] salt = new byte[16];
+        DrbgPool.current().nextBytes(salt);
+
+        IntStream.range(0, count).parallel().forEach(VaultMetrics.propagate((int i) -> {
+            PasswordEntry entry = entries.get(i);
+            byte[] plaintext;
+            try {
+                plaintext = key.decryptBytes(entry);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not decrypt entry " + entry.getId(), e);
+            }
+            try {
+                strengths[i] = PasswordStrength.score(plaintext);
+                fingerprints[i] = fingerprint(salt, plaintext);
+            } finally {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        }));
+
+        // Equal fingerprints sit next to each other once sorted. Each run's length is kept at its first
+        // position, and runs longer than one are reuse groups numbered from 1
+        long[] sorted = fingerprints.clone();
+        Arrays.parallelSort(sorted);
+        int[] runLength = new int[count];
+        int[] groupAt = new int[count];
+        int groups = 0;
+        for (int start = 0, end; start < count; start = end) {
+            end = start + 1;
+            while (end < count && sorted[end] == sorted[start]) {
+                end++;
+            }
+            runLength[start] = end - start;
+            if (end - start > 1) {
+                groupAt[start] = ++groups;
+            }
+        }
+
+        LocalDateTime staleBefore = LocalDateTime.now().minusDays(staleAfterDays);
+        List<VaultHealthReport.EntryHealth> flagged = new ArrayList<>();
+        int weak = 0, reused = 0, stale = 0;
+        for (int i = 0; i < count; i++) {
+            PasswordEntry entry = entries.get(i);
+            int first = firstIndex(sorted, fingerprints[i]);
+            int reusedWith = runLength[first] - 1;
+            boolean isWeak = strengths[i] < PasswordStrength.WEAK_BELOW;
+            LocalDateTime updatedAt = entry.getUpdatedAt() != null ? entry.getUpdatedAt() : entry.getCreatedAt();
+            boolean isStale = updatedAt != null && updatedAt.isBefore(staleBefore);
+            weak += isWeak ? 1 : 0;
+            reused += reusedWith > 0 ? 1 : 0;
+            stale += isStale ? 1 : 0;
+            if (isWeak || reusedWith > 0 || isStale) {
+                flagged.add(new VaultHealthReport.EntryHealth(entry.getId(), entry.getWebsite(), entry.getUsername(),
+                        strengths[i], isWeak, reusedWith > 0 ? groupAt[first] : null, reusedWith, isStale, updatedAt));
+            }
+        }
+        Arrays.fill(fingerprints, 0);
+        Arrays.fill(sorted, 0);
+
+        return new VaultHealthReport(revision, Instant.now(), count, weak, reused, stale, List.copyOf(flagged));
+    }
+
+    private static long fingerprint(byte[] salt, byte[] plaintext) {
+        MessageDigest digest = DIGESTS.get();
+        digest.update(salt);
+        byte[] hash = digest.digest(plaintext);
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (hash[i] & 0xFF);
+        }
+        return value;
+    }
+
+    // Position of the first occurrence of a value known to be in the sorted array
+    private static int firstIndex(long[] sorted, long value) {
+        int low = 0, high = sorted.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
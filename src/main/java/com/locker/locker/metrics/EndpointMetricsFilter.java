@@ -0,0 +1,37 @@
+package com.locker.locker.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Gives every servlet request a VaultMetrics scope. As a filter it opens the scope ahead of Spring
+// Security; as an interceptor it names the endpoint after the handler mapping has matched a pattern.
+public class EndpointMetricsFilter extends OncePerRequestFilter implements HandlerInterceptor {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        VaultMetrics.RequestScope scope = new VaultMetrics.RequestScope();
+        try (VaultMetrics.Binding ignored = VaultMetrics.bind(scope)) {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.finish();
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        VaultMetrics.RequestScope scope = VaultMetrics.currentScope();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (scope != null && pattern != null) {
+            scope.resolve(request.getMethod() + " " + pattern);
+        }
+        return true;
+    }
+}
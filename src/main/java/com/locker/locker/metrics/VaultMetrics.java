@@ -0,0 +1,180 @@
+package com.locker.locker.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+// Timers for the hot paths (KDF, AES-GCM, JWT), tagged with the endpoint being served and the outcome.
+// CryptoUtils is static, so timers go to the global registry that Spring Boot feeds into its own
+// (and therefore into the Prometheus scrape). Timers are cached per tag combination, so recording is a
+// map lookup and an add; histogram buckets are switched on per meter name in application.properties.
+public final class VaultMetrics {
+
+    public static final String CRYPTO = "vault.crypto";
+    public static final String JWT = "vault.jwt";
+
+    public static final String NO_ENDPOINT = "none";
+
+    private static final ThreadLocal<RequestScope> CURRENT = new ThreadLocal<>();
+
+    private static final ConcurrentMap<TimerKey, Timer> TIMERS = new ConcurrentHashMap<>();
+
+    private VaultMetrics() {
+    }
+
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    // Run and time one operation; exceptions are recorded with outcome=error and rethrown unchanged
+    public static <T, E extends Exception> T time(String name, String operation, TimedCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            record(name, operation, success, System.nanoTime() - start);
+        }
+    }
+
+    // Endpoint of the request this thread works for, e.g. "GET /api/passwords/{id}"
+    public static String endpoint() {
+        RequestScope scope = CURRENT.get();
+        String endpoint = scope != null ? scope.endpoint : null;
+        return endpoint != null ? endpoint : NO_ENDPOINT;
+    }
+
+    // Make this thread work for the given request until the returned handle is closed
+    public static Binding bind(RequestScope scope) {
+        RequestScope previous = CURRENT.get();
+        CURRENT.set(scope);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public static RequestScope currentScope() {
+        return CURRENT.get();
+    }
+
+    // Carry the caller's request over to a pool thread
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        RequestScope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            try (Binding ignored = bind(scope)) {
+                return task.call();
+            }
+        };
+    }
+
+    public static Runnable propagate(Runnable task) {
+        RequestScope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            try (Binding ignored = bind(scope)) {
+                task.run();
+            }
+        };
+    }
+
+    public static <T, R> Function<T, R> propagate(Function<T, R> function) {
+        RequestScope scope = CURRENT.get();
+        if (scope == null) {
+            return function;
+        }
+        return value -> {
+            try (Binding ignored = bind(scope)) {
+                return function.apply(value);
+            }
+        };
+    }
+
+    public static IntConsumer propagate(IntConsumer consumer) {
+        RequestScope scope = CURRENT.get();
+        if (scope == null) {
+            return consumer;
+        }
+        return value -> {
+            try (Binding ignored = bind(scope)) {
+                consumer.accept(value);
+            }
+        };
+    }
+
+    private static void record(String name, String operation, boolean success, long nanos) {
+        RequestScope scope = CURRENT.get();
+        if (scope != null && scope.defer(name, operation, success, nanos)) {
+            return;
+        }
+        timer(name, operation, scope != null && scope.endpoint != null ? scope.endpoint : NO_ENDPOINT, success)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer timer(String name, String operation, String endpoint, boolean success) {
+        return TIMERS.computeIfAbsent(new TimerKey(name, operation, endpoint, success), key -> Timer.builder(key.name())
+                .tag("operation", key.operation())
+                .tag("endpoint", key.endpoint())
+                .tag("outcome", key.success() ? "success" : "error")
+                .register(Metrics.globalRegistry));
+    }
+
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // One servlet request. Work done before the handler is resolved (JWT parsing in the security
+    // filters) does not know its endpoint yet, so it is held back and recorded once the request ends.
+    public static final class RequestScope {
+
+        private volatile String endpoint;
+        private volatile boolean open = true;
+        private final Queue<Sample> deferred = new ConcurrentLinkedQueue<>();
+
+        public void resolve(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private boolean defer(String name, String operation, boolean success, long nanos) {
+            if (endpoint != null || !open) {
+                return false;
+            }
+            deferred.add(new Sample(name, operation, success, nanos));
+            return true;
+        }
+
+        public void finish() {
+            open = false;
+            String resolved = endpoint != null ? endpoint : NO_ENDPOINT;
+            for (Sample sample; (sample = deferred.poll()) != null; ) {
+                timer(sample.name(), sample.operation(), resolved, sample.success()).record(sample.nanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private record Sample(String name, String operation, boolean success, long nanos) {
+    }
+
+    private record TimerKey(String name, String operation, String endpoint, boolean success) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.locker.locker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Algorithm and cost parameters a master hash was derived with, stored alongside it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KdfSpec {
+    public static final String PBKDF2 = "pbkdf2-sha256";
+    public static final String SCRYPT = "scrypt";
+    public static final String ARGON2ID = "argon2id";
+
+    private String algorithm;
+    private Map<String, Integer> params;
+
+    // Parameters of hashes created before the KDF was recorded per user
+    public static KdfSpec legacy() {
+        return new KdfSpec(PBKDF2, Map.of("iterations", 65536));
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -11,15 +12,23 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "passwords")
+@CompoundIndex(name = "user_website", def = "{'userId': 1, 'website': 1}")
+@CompoundIndex(name = "user_updated", def = "{'userId': 1, 'updatedAt': -1, '_id': -1}") // Keyset listing order
+@CompoundIndex(name = "user_revision", def = "{'userId': 1, 'revision': 1}") // Delta sync
 public class PasswordEntry {
     @Id
     private String id;
     private String userId;
     private String website;
     private String username;
-    private String encryptedPassword;
-    private String iv; // Initialization Vector for AES encryption
+    private String encryptedPassword; // Base64 ciphertext and tag; only in entries stored before the binary format
+    private String iv; // Initialization Vector for AES encryption, Base64 alongside encryptedPassword
     private String notes;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Integer keyVersion; // null while encrypted with the master-derived key, DATA_KEY once under the user's data key
+    private Long revision; // User revision of the last write; null for entries written before revisions existed
+    private byte[] secret; // Format byte, IV, ciphertext and tag as one binary field; replaces encryptedPassword and iv
+
+    public static final int DATA_KEY = 1;
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.locker.locker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Records a deleted entry so syncing clients can drop it. Mongo's TTL monitor compacts tombstones
+// a day after sync tokens that could still need them have expired (vault.sync.token-max-age).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "password_tombstones")
+@CompoundIndex(name = "user_revision", def = "{'userId': 1, 'revision': 1}")
+public class PasswordTombstone {
+    @Id
+    private String id;
+    private String userId;
+    private String entryId;
+    private long revision;
+    @Indexed(name = "deleted_ttl", expireAfter = "31d")
+    private Date deletedAt;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -13,8 +14,18 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class User {
     @Id
     private String id;
+    @Indexed(unique = true, name = "username_unique")
     private String username;
+    @Indexed(unique = true, name = "email_unique")
     private String email;
-    private String masterPasswordHash; // Hashed master password
+    private String masterPasswordHash; // Master key itself while LEGACY/MIGRATING, an HMAC verifier of it once ENVELOPE
     private String salt; // Salt for password hashing
+    private KdfSpec kdf; // KDF the hash was derived with; null for hashes from before it was recorded
+    private String wrappedDataKey; // Random entry key, encrypted with the master-derived key
+    private VaultKeyState keyState; // null is treated as LEGACY
+    private long revision; // Bumped by every vault write; entries and tombstones record the value they were written at
+
+    public VaultKeyState effectiveKeyState() {
+        return keyState != null ? keyState : VaultKeyState.LEGACY;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.locker.locker.model;
+
+// Progress of a user's move from master-key encryption to a wrapped data key
+public enum VaultKeyState {
+    LEGACY,    // entries under the master-derived key, which is also the stored hash
+    MIGRATING, // data key assigned, entries being re-encrypted under it
+    ENVELOPE   // all entries under the data key, stored hash replaced by a verifier
+}
@@ -0,0 +1,45 @@
+package com.locker.locker.repository;
+
+import com.locker.locker.dto.PageCursor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+// Listing queries shared by the blocking and the reactive repositories
+public class PasswordQueries {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "updatedAt")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private PasswordQueries() {
+    }
+
+    // Entries of a user, newest first, strictly after the given cursor (null for the first page)
+    public static Query summaryPage(String userId, PageCursor after, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (after != null) {
+            ObjectId afterId;
+            try {
+                afterId = new ObjectId(after.getId());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            criteria = criteria.orOperator(
+                    Criteria.where("updatedAt").lt(after.getUpdatedAt()),
+                    Criteria.where("updatedAt").is(after.getUpdatedAt()).and("id").lt(afterId));
+        }
+        return new Query(criteria).with(NEWEST_FIRST).limit(limit);
+    }
+
+    // Entries written with after < revision <= upTo, oldest revision first
+    public static Query changedBetween(String userId, long after, long upTo, int limit) {
+        return new Query(Criteria.where("userId").is(userId).and("revision").gt(after).lte(upTo))
+                .with(Sort.by(Sort.Direction.ASC, "revision"))
+                .limit(limit);
+    }
+
+    public static Query allEntries(String userId) {
+        return new Query(Criteria.where("userId").is(userId)).with(NEWEST_FIRST);
+    }
+}
@@ -1,10 +1,49 @@
 package com.locker.locker.repository;
 
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.dto.PasswordEntrySummary;
 import com.locker.locker.model.PasswordEntry;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.bson.RawBsonDocument;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Vault entry storage, implemented by the Mongo repositories (vault.storage=mongo) and the embedded log
+// store (vault.storage=embedded)
+public interface PasswordRepository {
+    Optional<PasswordEntry> findById(String id);
+
+    List<PasswordEntry> findByUserIdAndIdIn(String userId, Collection<String> ids);
+
+    // Inserts or replaces the entry, assigning an id to new ones
+    <S extends PasswordEntry> S save(S entry);
+
+    <S extends PasswordEntry> List<S> insert(Iterable<S> entries);
+
+    void deleteById(String id);
+
+    // All summaries of a user, newest first, read lazily; callers must close the stream
+    Stream<PasswordEntrySummary> streamSummaries(String userId);
+
+    // Summary fields of one page as undecoded BSON, newest first, strictly after the given cursor (null for
+    // the first page); a limit of 0 reads the whole vault. Callers must close the stream
+    Stream<RawBsonDocument> streamRawSummaries(String userId, PageCursor after, int limit);
+
+    // Summaries of entries written with after < revision <= upTo, oldest revision first
+    List<PasswordEntrySummary> findSummariesChangedBetween(String userId, long after, long upTo, int limit);
+
+    // All full entries of a user, newest first, read lazily; callers must close the stream
+    Stream<PasswordEntry> streamEntries(String userId);
+
+    // Entries still encrypted with the master-derived key (no keyVersion)
+    List<PasswordEntry> findWithoutDataKey(String userId, int limit);
+
+    // Replaces the ciphertext of each entry with the update's secret in the binary format; an entry whose
+    // ciphertext changed since it was read is left alone, so a concurrent edit wins
+    void updateSecrets(List<SecretUpdate> updates);
 
-public interface PasswordRepository extends MongoRepository<PasswordEntry, String> {
-    List<PasswordEntry> findByUserId(String userId);
-    List<PasswordEntry> findByUserIdAndWebsiteContainingIgnoreCase(String userId, String website);
-}
\ No newline at end of file
+    record SecretUpdate(PasswordEntry entry, byte[] secret, Integer keyVersion) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.locker.locker.repository;
+
+import com.locker.locker.model.PasswordTombstone;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// Tombstone storage, implemented by the Mongo repositories (vault.storage=mongo) and the embedded log
+// store (vault.storage=embedded)
+public interface PasswordTombstoneRepository {
+    <S extends PasswordTombstone> S save(S tombstone);
+
+    // Tombstones with after < revision <= upTo, in revision order
+    List<PasswordTombstone> findChanges(String userId, long after, long upTo, Pageable pageable);
+}
@@ -0,0 +1,11 @@
+package com.locker.locker.repository;
+
+import com.locker.locker.model.PasswordEntry;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ReactivePasswordRepository extends ReactiveMongoRepository<PasswordEntry, String>, ReactivePasswordRepositoryCustom {
+    Flux<PasswordEntry> findByUserIdAndIdIn(String userId, Collection<String> ids);
+}
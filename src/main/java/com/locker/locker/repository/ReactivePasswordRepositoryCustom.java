@@ -0,0 +1,13 @@
+package com.locker.locker.repository;
+
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.dto.PasswordEntrySummary;
+import reactor.core.publisher.Flux;
+
+public interface ReactivePasswordRepositoryCustom {
+    // One page of summaries, newest first, strictly after the given cursor (null for the first page)
+    Flux<PasswordEntrySummary> findSummaryPage(String userId, PageCursor after, int limit);
+
+    // All summaries of a user, newest first, emitted as the Mongo cursor yields them
+    Flux<PasswordEntrySummary> streamSummaries(String userId);
+}
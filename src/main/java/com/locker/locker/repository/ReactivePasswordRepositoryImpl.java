@@ -0,0 +1,31 @@
+package com.locker.locker.repository;
+
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.model.PasswordEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+public class ReactivePasswordRepositoryImpl implements ReactivePasswordRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<PasswordEntrySummary> findSummaryPage(String userId, PageCursor after, int limit) {
+        // Build the query at subscription time so an invalid cursor surfaces as an error signal
+        return Flux.defer(() -> reactiveMongoTemplate.query(PasswordEntry.class)
+                .as(PasswordEntrySummary.class)
+                .matching(PasswordQueries.summaryPage(userId, after, limit))
+                .all());
+    }
+
+    @Override
+    public Flux<PasswordEntrySummary> streamSummaries(String userId) {
+        return reactiveMongoTemplate.query(PasswordEntry.class)
+                .as(PasswordEntrySummary.class)
+                .matching(PasswordQueries.allEntries(userId))
+                .all();
+    }
+}
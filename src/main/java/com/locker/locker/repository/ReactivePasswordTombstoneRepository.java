@@ -0,0 +1,7 @@
+package com.locker.locker.repository;
+
+import com.locker.locker.model.PasswordTombstone;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactivePasswordTombstoneRepository extends ReactiveMongoRepository<PasswordTombstone, String> {
+}
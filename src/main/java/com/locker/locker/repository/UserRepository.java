@@ -1,11 +1,33 @@
 package com.locker.locker.repository;
 
 import com.locker.locker.model.User;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import com.locker.locker.model.VaultKeyState;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User, String> {
+// User storage, implemented by the Mongo repositories (vault.storage=mongo) and the embedded log store
+// (vault.storage=embedded). Updates are conditional, so concurrent writers cannot overwrite each other.
+public interface UserRepository {
+    Optional<User> findById(String id);
+
     Optional<User> findByUsername(String username);
-    boolean existsByUsername(String username);
-    boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // Assigns an id; throws DuplicateKeyException naming username_unique or email_unique for taken values
+    <S extends User> S insert(S user);
+
+    List<User> findByKeyStateNot(VaultKeyState keyState, Pageable pageable); // also matches users without a keyState
+
+    // Adds count to the user's revision and returns the new value, or null if the user does not exist
+    Long incrementRevision(String userId, int count);
+
+    // Current revision, 0 for an unknown user
+    long findRevision(String userId);
+
+    // Stores salt, kdf, hash, wrapped data key and key state if the stored hash is still expectedHash
+    boolean updateCredentials(User user, String expectedHash);
+
+    // Stores a wrapped data key and moves the user to MIGRATING, unless a key was already assigned
+    boolean claimDataKey(String userId, String wrappedDataKey);
+}
@@ -0,0 +1,246 @@
+package com.locker.locker.repository.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only record log in memory-mapped segment files (00000001.log, 00000002.log, ...). A record is
+// [int length][int crc32][byte type][payload], the checksum covering type and payload. A zero length marks
+// the end of the written part of a segment. A segment is forced to disk before the next one is started, so
+// a crash can only tear records of the newest segment; replay stops at the first bad record wherever it
+// is, sets aside any later segments as *.corrupt and appends over the rest. Not thread-safe: EmbeddedStore
+// serializes appends and only reads concurrently.
+final class EmbeddedLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedLog.class);
+
+    static final int HEADER_LENGTH = 9;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{8})\\.log");
+
+    // Where a record's payload lives; valid until compaction releases the segment
+    record Location(Segment segment, int offset, int length) {
+        int recordLength() {
+            return HEADER_LENGTH + length;
+        }
+    }
+
+    interface RecordHandler {
+        void accept(byte type, ByteBuffer payload, Location location);
+    }
+
+    static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private boolean dirty;
+
+        private Segment(long id, Path path, int capacity) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Mapping past the end grows the file; the new part reads as zeros until written
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+
+    EmbeddedLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_LENGTH) {
+            throw new IllegalArgumentException("Segment size must be larger than " + HEADER_LENGTH + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+    }
+
+    // Passes every record to the handler in the order written and positions the log after the last one
+    void replay(RecordHandler handler) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            Matcher name = SEGMENT_NAME.matcher(path.getFileName().toString());
+            name.matches();
+            // Segments written with a larger segment size keep theirs
+            Segment segment = new Segment(Long.parseLong(name.group(1)), path,
+                    (int) Math.max(Files.size(path), segmentSize));
+            segments.add(segment);
+            if (!scan(segment, handler)) {
+                // Records after a bad one may depend on what it held, so the log ends there
+                List<Path> later = paths.subList(i + 1, paths.size());
+                log.warn("Bad record in {} at offset {}; the log is truncated there{}", path, segment.position,
+                        later.isEmpty() ? "" : " and " + later.size() + " later segments are set aside as *.corrupt");
+                for (Path dropped : later) {
+                    Files.move(dropped, dropped.resolveSibling(dropped.getFileName() + ".corrupt"),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                break;
+            }
+        }
+        active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active != null) {
+            clearTail(active);
+        }
+    }
+
+    Location append(byte type, byte[] payload) throws IOException {
+        int recordLength = HEADER_LENGTH + payload.length;
+        if (recordLength > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        if (active == null || active.buffer.capacity() - active.position < recordLength) {
+            roll();
+        }
+        Segment segment = active;
+        int offset = segment.position;
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        // Length goes last, so a reader never sees a record whose body has not been written
+        segment.buffer.put(offset + HEADER_LENGTH, payload);
+        segment.buffer.put(offset + 8, type);
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putInt(offset, payload.length);
+        segment.position += recordLength;
+        segment.dirty = true;
+        return new Location(segment, offset + HEADER_LENGTH, payload.length);
+    }
+
+    byte[] read(Location location) {
+        byte[] payload = new byte[location.length()];
+        location.segment().buffer.get(location.offset(), payload);
+        return payload;
+    }
+
+    // Flushes appended records to disk
+    void force() {
+        for (Segment segment : segments) {
+            if (segment.dirty) {
+                segment.dirty = false;
+                segment.buffer.force();
+            }
+        }
+    }
+
+    // Bytes taken by all records in the log, live or not
+    long writtenBytes() {
+        long written = 0;
+        for (Segment segment : segments) {
+            written += segment.position;
+        }
+        return written;
+    }
+
+    // Starts a new segment for compaction and returns the older ones. Once the caller has appended
+    // every live record again, release() deletes them
+    List<Segment> seal() throws IOException {
+        roll();
+        return List.copyOf(segments.subList(0, segments.size() - 1));
+    }
+
+    // Deletes sealed segments oldest first, after the copies are on disk. A crash in between leaves
+    // old segments whose records are replayed before their newer copies, which changes nothing.
+    void release(List<Segment> sealed) throws IOException {
+        force();
+        for (Segment segment : sealed) {
+            segment.channel.close();
+            Files.delete(segment.path);
+            segments.remove(segment);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    // Reads records until the end of the written part; false if it ended at a bad record
+    private static boolean scan(Segment segment, RecordHandler handler) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        boolean intact = true;
+        while (buffer.capacity() - position >= HEADER_LENGTH) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > buffer.capacity() - position - HEADER_LENGTH) {
+                intact = false;
+                break;
+            }
+            // Checked and handed over in place, without copying the payload out of the mapping
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(position + 8, 1 + length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                intact = false;
+                break;
+            }
+            handler.accept(buffer.get(position + 8), buffer.slice(position + HEADER_LENGTH, length),
+                    new Location(segment, position + HEADER_LENGTH, length));
+            position += HEADER_LENGTH + length;
+        }
+        segment.position = position;
+        return intact;
+    }
+
+    // Zeroes everything after the last intact record: a torn record, or what is left of one that a shorter
+    // record was written over, either of which would otherwise read as a bad record after the next append
+    private static void clearTail(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = segment.position;
+        for (; offset + Long.BYTES <= buffer.capacity(); offset += Long.BYTES) {
+            if (buffer.getLong(offset) != 0) {
+                buffer.putLong(offset, 0);
+                segment.dirty = true;
+            }
+        }
+        for (; offset < buffer.capacity(); offset++) {
+            if (buffer.get(offset) != 0) {
+                buffer.put(offset, (byte) 0);
+                segment.dirty = true;
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        // Forced before the new segment exists, so a crash can never leave a torn record behind a newer segment
+        if (active != null && active.dirty) {
+            active.dirty = false;
+            active.buffer.force();
+        }
+        long id = active == null ? 1 : active.id + 1;
+        Segment segment = new Segment(id, directory.resolve(String.format("%08d.log", id)), segmentSize);
+        segments.add(segment);
+        active = segment;
+    }
+}
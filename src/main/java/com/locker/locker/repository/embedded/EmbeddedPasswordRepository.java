@@ -0,0 +1,104 @@
+package com.locker.locker.repository.embedded;
+
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.repository.PasswordRepository;
+import org.bson.RawBsonDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Streams are read into memory under the store's read lock before they are returned, so an unclosed or
+// slowly consumed stream never holds up writers
+@Repository
+@ConditionalOnProperty(name = "vault.storage", havingValue = "embedded")
+public class EmbeddedPasswordRepository implements PasswordRepository {
+
+    @Autowired
+    private EmbeddedStore store;
+
+    @Override
+    public Optional<PasswordEntry> findById(String id) {
+        return Optional.ofNullable(store.entry(id));
+    }
+
+    @Override
+    public List<PasswordEntry> findByUserIdAndIdIn(String userId, Collection<String> ids) {
+        return store.entries(userId, ids);
+    }
+
+    @Override
+    public <S extends PasswordEntry> S save(S entry) {
+        store.putEntries(List.of(entry), false);
+        return entry;
+    }
+
+    @Override
+    public <S extends PasswordEntry> List<S> insert(Iterable<S> entries) {
+        List<S> batch = new ArrayList<>();
+        entries.forEach(batch::add);
+        store.putEntries(batch, true);
+        return batch;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        store.deleteEntry(id);
+    }
+
+    @Override
+    public Stream<PasswordEntrySummary> streamSummaries(String userId) {
+        return streamEntries(userId).map(PasswordEntrySummary::of);
+    }
+
+    @Override
+    public Stream<RawBsonDocument> streamRawSummaries(String userId, PageCursor after, int limit) {
+        // Whole entries; PasswordSummaryWriter skips the fields a summary does not have
+        return store.entryDocuments(userId, after, limit).stream().map(RawBsonDocument::new);
+    }
+
+    @Override
+    public List<PasswordEntrySummary> findSummariesChangedBetween(String userId, long after, long upTo, int limit) {
+        return store.findEntries(userId, slot -> slot.revision() > after && slot.revision() <= upTo,
+                        Comparator.comparingLong(EmbeddedStore.EntrySlot::revision), limit).stream()
+                .map(PasswordEntrySummary::of)
+                .toList();
+    }
+
+    @Override
+    public Stream<PasswordEntry> streamEntries(String userId) {
+        return store.findEntries(userId, slot -> true, EmbeddedStore.NEWEST_FIRST, Integer.MAX_VALUE).stream();
+    }
+
+    @Override
+    public List<PasswordEntry> findWithoutDataKey(String userId, int limit) {
+        return store.findEntries(userId, slot -> slot.keyVersion() == null, EmbeddedStore.NEWEST_FIRST, limit);
+    }
+
+    @Override
+    public void updateSecrets(List<SecretUpdate> updates) {
+        for (SecretUpdate update : updates) {
+            PasswordEntry read = update.entry();
+            store.updateEntry(read.getId(),
+                    stored -> read.getSecret() != null
+                            ? Arrays.equals(stored.getSecret(), read.getSecret())
+                            : Objects.equals(stored.getEncryptedPassword(), read.getEncryptedPassword()),
+                    stored -> {
+                        stored.setSecret(update.secret());
+                        stored.setEncryptedPassword(null);
+                        stored.setIv(null);
+                        stored.setKeyVersion(update.keyVersion());
+                    });
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.locker.locker.repository.embedded;
+
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.repository.PasswordTombstoneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@ConditionalOnProperty(name = "vault.storage", havingValue = "embedded")
+public class EmbeddedPasswordTombstoneRepository implements PasswordTombstoneRepository {
+
+    @Autowired
+    private EmbeddedStore store;
+
+    @Override
+    public <S extends PasswordTombstone> S save(S tombstone) {
+        store.putTombstone(tombstone);
+        return tombstone;
+    }
+
+    // Always in revision order, which is the only order callers ask for
+    @Override
+    public List<PasswordTombstone> findChanges(String userId, long after, long upTo, Pageable pageable) {
+        return store.tombstones(userId, after, upTo, pageable.getPageSize());
+    }
+}
@@ -0,0 +1,626 @@
+package com.locker.locker.repository.embedded;
+
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.model.User;
+import com.locker.locker.repository.embedded.EmbeddedLog.Location;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Users, entries and tombstones as BSON documents (mapped like Spring Data would store them in Mongo) in an
+// EmbeddedLog, with every record's location indexed in memory: users by id and username, entries by id and
+// per user in listing order. Startup replays the log to rebuild the indexes; compaction copies the live
+// records into fresh segments once enough of the log is overwritten or deleted data. One lock guards it all:
+// reads share it, writes take it exclusively, which suits the single node this backend is meant for.
+@Component
+@ConditionalOnProperty(name = "vault.storage", havingValue = "embedded")
+public class EmbeddedStore {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedStore.class);
+
+    private static final byte USER = 1;
+    private static final byte REVISION = 2; // { _id: userId, revision }
+    private static final byte ENTRY = 3;
+    private static final byte ENTRY_DELETED = 4; // { _id, userId }
+    private static final byte TOMBSTONE = 5;
+
+    // Same lifetime as the TTL index on PasswordTombstone.deletedAt
+    private static final Duration TOMBSTONE_TTL = Duration.ofDays(31);
+
+    static final Comparator<EntrySlot> NEWEST_FIRST = Comparator.comparingLong(EntrySlot::updatedAt)
+            .thenComparing(EntrySlot::id)
+            .reversed();
+
+    private final EmbeddedLog records;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MappingMongoConverter converter;
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final long fsyncIntervalMillis;
+    private final double compactionGarbageRatio;
+    private final long compactionMinBytes;
+
+    private final Map<String, UserSlot> users = new LinkedHashMap<>();
+    private final Map<String, String> userIdsByUsername = new HashMap<>();
+    private final Map<String, String> userIdsByEmail = new HashMap<>();
+    private final Map<String, EntrySlot> entries = new HashMap<>();
+    private final Map<String, NavigableSet<EntrySlot>> entriesByUser = new HashMap<>();
+    private final Map<String, List<TombstoneSlot>> tombstonesByUser = new HashMap<>();
+    private long liveBytes;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "embedded-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public EmbeddedStore(@Value("${vault.embedded.path:data}") String path,
+                         @Value("${vault.embedded.segment-size:67108864}") int segmentSize, // 64 MB
+                         @Value("${vault.embedded.fsync-interval:1000}") long fsyncIntervalMillis, // 1 second, 0 syncs every write
+                         @Value("${vault.embedded.compaction-interval:60000}") long compactionIntervalMillis, // 1 minute
+                         @Value("${vault.embedded.compaction-garbage-ratio:0.5}") double compactionGarbageRatio) throws IOException {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        this.converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        this.compactionMinBytes = segmentSize;
+
+        long started = System.nanoTime();
+        this.records = new EmbeddedLog(Path.of(path), segmentSize);
+        records.replay(this::apply);
+        log.info("Loaded {} users and {} entries from {} in {} ms", users.size(), entries.size(),
+                Path.of(path).toAbsolutePath(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        if (fsyncIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::force, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::compactIfWorthwhile, compactionIntervalMillis, compactionIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Users
+
+    User user(String id) {
+        try (Guard ignored = read()) {
+            UserSlot slot = users.get(id);
+            return slot != null ? decodeUser(slot) : null;
+        }
+    }
+
+    User userByUsername(String username) {
+        try (Guard ignored = read()) {
+            String id = userIdsByUsername.get(username);
+            return id != null ? decodeUser(users.get(id)) : null;
+        }
+    }
+
+    // Users in insertion order that match, skipping the first offset of them
+    List<User> users(Predicate<User> filter, long offset, int limit) {
+        try (Guard ignored = read()) {
+            List<User> matching = new ArrayList<>();
+            for (UserSlot slot : users.values()) {
+                User user = decodeUser(slot);
+                if (filter.test(user) && offset-- <= 0) {
+                    matching.add(user);
+                    if (matching.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return matching;
+        }
+    }
+
+    void insertUser(User user) {
+        if (user.getId() == null) {
+            user.setId(new ObjectId().toHexString());
+        }
+        byte[] document = encode(user);
+        try (Guard ignored = write()) {
+            if (users.containsKey(user.getId())) {
+                throw new DuplicateKeyException("Duplicate key _id: " + user.getId());
+            }
+            if (user.getUsername() != null && userIdsByUsername.containsKey(user.getUsername())) {
+                throw new DuplicateKeyException("Duplicate key for index username_unique: " + user.getUsername());
+            }
+            if (user.getEmail() != null && userIdsByEmail.containsKey(user.getEmail())) {
+                throw new DuplicateKeyException("Duplicate key for index email_unique: " + user.getEmail());
+            }
+            append(USER, document);
+        }
+    }
+
+    // Applies the change to the stored user if it passes the condition
+    boolean updateUser(String id, Predicate<User> condition, Consumer<User> change) {
+        try (Guard ignored = write()) {
+            UserSlot slot = users.get(id);
+            if (slot == null) {
+                return false;
+            }
+            User user = decodeUser(slot);
+            if (!condition.test(user)) {
+                return false;
+            }
+            change.accept(user);
+            append(USER, encode(user));
+            return true;
+        }
+    }
+
+    Long incrementRevision(String userId, int count) {
+        try (Guard ignored = write()) {
+            UserSlot slot = users.get(userId);
+            if (slot == null) {
+                return null;
+            }
+            long revision = slot.revision + count;
+            append(REVISION, encode(new Document("_id", userId).append("revision", revision)));
+            return revision;
+        }
+    }
+
+    long revision(String userId) {
+        try (Guard ignored = read()) {
+            UserSlot slot = users.get(userId);
+            return slot != null ? slot.revision : 0;
+        }
+    }
+
+    // Entries
+
+    PasswordEntry entry(String id) {
+        try (Guard ignored = read()) {
+            EntrySlot slot = entries.get(id);
+            return slot != null ? decode(slot.location(), PasswordEntry.class) : null;
+        }
+    }
+
+    List<PasswordEntry> entries(String userId, Collection<String> ids) {
+        try (Guard ignored = read()) {
+            List<PasswordEntry> found = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                EntrySlot slot = entries.get(id);
+                if (slot != null && slot.userId().equals(userId)) {
+                    found.add(decode(slot.location(), PasswordEntry.class));
+                }
+            }
+            return found;
+        }
+    }
+
+    // Documents of a user's entries, newest first, strictly after the cursor (null for the first page);
+    // a limit of 0 returns all of them
+    List<byte[]> entryDocuments(String userId, PageCursor after, int limit) {
+        try (Guard ignored = read()) {
+            NavigableSet<EntrySlot> slots = entriesByUser.getOrDefault(userId, new TreeSet<>(NEWEST_FIRST));
+            if (after != null) {
+                long updatedAt = after.getUpdatedAt().atZone(zone).toInstant().toEpochMilli();
+                slots = slots.tailSet(new EntrySlot(after.getId(), userId, updatedAt, 0, null, null), false);
+            }
+            List<byte[]> documents = new ArrayList<>(limit > 0 ? Math.min(limit, slots.size()) : slots.size());
+            for (EntrySlot slot : slots) {
+                documents.add(records.read(slot.location()));
+                if (documents.size() == limit) {
+                    break;
+                }
+            }
+            return documents;
+        }
+    }
+
+    // Entries of a user whose index keys pass the filter, in the given order
+    List<PasswordEntry> findEntries(String userId, Predicate<EntrySlot> filter, Comparator<EntrySlot> order, int limit) {
+        try (Guard ignored = read()) {
+            List<PasswordEntry> found = new ArrayList<>();
+            entriesByUser.getOrDefault(userId, new TreeSet<>(NEWEST_FIRST)).stream()
+                    .filter(filter)
+                    .sorted(order)
+                    .limit(limit)
+                    .forEach(slot -> found.add(decode(slot.location(), PasswordEntry.class)));
+            return found;
+        }
+    }
+
+    // Inserts or replaces entries; with insert set an existing id is rejected and nothing is written
+    void putEntries(List<? extends PasswordEntry> batch, boolean insert) {
+        List<byte[]> documents = new ArrayList<>(batch.size());
+        for (PasswordEntry entry : batch) {
+            if (entry.getId() == null) {
+                entry.setId(new ObjectId().toHexString());
+            }
+            documents.add(encode(entry));
+        }
+        try (Guard ignored = write()) {
+            if (insert) {
+                for (PasswordEntry entry : batch) {
+                    if (entries.containsKey(entry.getId())) {
+                        throw new DuplicateKeyException("Duplicate key _id: " + entry.getId());
+                    }
+                }
+            }
+            for (byte[] document : documents) {
+                append(ENTRY, document);
+            }
+        }
+    }
+
+    // Applies the change to the stored entry if it passes the condition
+    boolean updateEntry(String id, Predicate<PasswordEntry> condition, Consumer<PasswordEntry> change) {
+        try (Guard ignored = write()) {
+            EntrySlot slot = entries.get(id);
+            if (slot == null) {
+                return false;
+            }
+            PasswordEntry entry = decode(slot.location(), PasswordEntry.class);
+            if (!condition.test(entry)) {
+                return false;
+            }
+            change.accept(entry);
+            append(ENTRY, encode(entry));
+            return true;
+        }
+    }
+
+    void deleteEntry(String id) {
+        try (Guard ignored = write()) {
+            EntrySlot slot = entries.get(id);
+            if (slot != null) {
+                Object storedId = ObjectId.isValid(id) ? new ObjectId(id) : id;
+                append(ENTRY_DELETED, encode(new Document("_id", storedId).append("userId", slot.userId())));
+            }
+        }
+    }
+
+    // Tombstones
+
+    void putTombstone(PasswordTombstone tombstone) {
+        if (tombstone.getId() == null) {
+            tombstone.setId(new ObjectId().toHexString());
+        }
+        byte[] document = encode(tombstone);
+        try (Guard ignored = write()) {
+            append(TOMBSTONE, document);
+        }
+    }
+
+    // Tombstones with after < revision <= upTo, in revision order
+    List<PasswordTombstone> tombstones(String userId, long after, long upTo, int limit) {
+        try (Guard ignored = read()) {
+            return tombstonesByUser.getOrDefault(userId, List.of()).stream()
+                    .filter(slot -> slot.revision() > after && slot.revision() <= upTo)
+                    .sorted(Comparator.comparingLong(TombstoneSlot::revision))
+                    .limit(limit)
+                    .map(slot -> decode(slot.location(), PasswordTombstone.class))
+                    .toList();
+        }
+    }
+
+    // Maintenance
+
+    void force() {
+        try (Guard ignored = read()) {
+            records.force();
+        } catch (RuntimeException e) {
+            log.warn("Could not sync the embedded store: {}", e.getMessage());
+        }
+    }
+
+    void compactIfWorthwhile() {
+        try {
+            long written;
+            long garbage;
+            try (Guard ignored = read()) {
+                written = records.writtenBytes();
+                garbage = written - liveBytes;
+            }
+            if (written > compactionMinBytes && garbage >= written * compactionGarbageRatio) {
+                compact();
+            }
+        } catch (Exception e) {
+            log.warn("Embedded store compaction failed: {}", e.getMessage());
+        }
+    }
+
+    // Copies every live record into new segments, folding revision records into their user and dropping
+    // expired tombstones, then deletes the old segments
+    void compact() throws IOException {
+        try (Guard ignored = write()) {
+            long started = System.nanoTime();
+            long before = records.writtenBytes();
+            List<EmbeddedLog.Segment> sealed = records.seal();
+            liveBytes = 0;
+
+            for (UserSlot slot : users.values()) {
+                User user = decodeUser(slot);
+                slot.location = records.append(USER, encode(user));
+                slot.revisionLocation = null;
+                liveBytes += slot.location.recordLength();
+            }
+            for (NavigableSet<EntrySlot> slots : entriesByUser.values()) {
+                List<EntrySlot> moved = new ArrayList<>(slots.size());
+                for (EntrySlot slot : slots) {
+                    EntrySlot copy = slot.at(records.append(ENTRY, records.read(slot.location())));
+                    moved.add(copy);
+                    entries.put(copy.id(), copy);
+                    liveBytes += copy.location().recordLength();
+                }
+                slots.clear();
+                slots.addAll(moved);
+            }
+            long expired = System.currentTimeMillis() - TOMBSTONE_TTL.toMillis();
+            for (List<TombstoneSlot> slots : tombstonesByUser.values()) {
+                slots.removeIf(slot -> slot.deletedAt() < expired);
+                for (int i = 0; i < slots.size(); i++) {
+                    TombstoneSlot slot = slots.get(i);
+                    TombstoneSlot copy = slot.at(records.append(TOMBSTONE, records.read(slot.location())));
+                    slots.set(i, copy);
+                    liveBytes += copy.location().recordLength();
+                }
+            }
+            tombstonesByUser.values().removeIf(List::isEmpty);
+
+            records.release(sealed);
+            log.info("Compacted the embedded store from {} to {} bytes in {} ms", before, records.writtenBytes(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        try (Guard ignored = write()) {
+            records.close();
+        }
+    }
+
+    // Writes a record and applies it to the indexes exactly as replay would; called with the write lock held
+    private void append(byte type, byte[] document) {
+        try {
+            apply(type, ByteBuffer.wrap(document), records.append(type, document));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (fsyncIntervalMillis == 0) {
+            records.force();
+        }
+    }
+
+    private void apply(byte type, ByteBuffer document, Location location) {
+        Fields fields = Fields.read(document);
+        switch (type) {
+            case USER -> {
+                UserSlot slot = users.get(fields.id);
+                if (slot == null) {
+                    slot = new UserSlot();
+                    users.put(fields.id, slot);
+                } else {
+                    liveBytes -= slot.recordLength();
+                    userIdsByUsername.remove(slot.username);
+                    userIdsByEmail.remove(slot.email);
+                }
+                slot.location = location;
+                slot.revisionLocation = null;
+                slot.revision = fields.revision;
+                slot.username = fields.username;
+                slot.email = fields.email;
+                if (slot.username != null) {
+                    userIdsByUsername.put(slot.username, fields.id);
+                }
+                if (slot.email != null) {
+                    userIdsByEmail.put(slot.email, fields.id);
+                }
+                liveBytes += slot.recordLength();
+            }
+            case REVISION -> {
+                UserSlot slot = users.get(fields.id);
+                if (slot != null) {
+                    liveBytes -= slot.recordLength();
+                    slot.revision = fields.revision;
+                    slot.revisionLocation = location;
+                    liveBytes += slot.recordLength();
+                }
+            }
+            case ENTRY -> {
+                EntrySlot slot = new EntrySlot(fields.id, fields.userId, fields.updatedAt, fields.revision,
+                        fields.keyVersion, location);
+                removeEntry(fields.id);
+                entries.put(slot.id(), slot);
+                entriesByUser.computeIfAbsent(slot.userId(), id -> new TreeSet<>(NEWEST_FIRST)).add(slot);
+                liveBytes += location.recordLength();
+            }
+            case ENTRY_DELETED -> removeEntry(fields.id);
+            case TOMBSTONE -> {
+                tombstonesByUser.computeIfAbsent(fields.userId, id -> new ArrayList<>())
+                        .add(new TombstoneSlot(fields.revision, fields.deletedAt, location));
+                liveBytes += location.recordLength();
+            }
+            default -> throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    private void removeEntry(String id) {
+        EntrySlot previous = entries.remove(id);
+        if (previous != null) {
+            NavigableSet<EntrySlot> slots = entriesByUser.get(previous.userId());
+            slots.remove(previous);
+            if (slots.isEmpty()) {
+                entriesByUser.remove(previous.userId());
+            }
+            liveBytes -= previous.location().recordLength();
+        }
+    }
+
+    // The revision is kept in REVISION records between full writes of the user
+    private User decodeUser(UserSlot slot) {
+        User user = decode(slot.location, User.class);
+        user.setRevision(slot.revision);
+        return user;
+    }
+
+    private <T> T decode(Location location, Class<T> type) {
+        byte[] document = records.read(location);
+        Document decoded = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)),
+                DecoderContext.builder().build());
+        return converter.read(type, decoded);
+    }
+
+    private byte[] encode(Object entity) {
+        Document document;
+        if (entity instanceof Document raw) {
+            document = raw;
+        } else {
+            document = new Document();
+            converter.write(entity, document);
+        }
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    private Guard read() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        return readLock::unlock;
+    }
+
+    private Guard write() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        return writeLock::unlock;
+    }
+
+    private interface Guard extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class UserSlot {
+        private Location location;
+        private Location revisionLocation; // Latest REVISION record since the user was written, if any
+        private long revision;
+        private String username;
+        private String email;
+
+        private int recordLength() {
+            return location.recordLength() + (revisionLocation != null ? revisionLocation.recordLength() : 0);
+        }
+    }
+
+    // Index keys of an entry; updatedAt in epoch milliseconds, as stored
+    record EntrySlot(String id, String userId, long updatedAt, long revision, Integer keyVersion, Location location) {
+        EntrySlot at(Location moved) {
+            return new EntrySlot(id, userId, updatedAt, revision, keyVersion, moved);
+        }
+    }
+
+    private record TombstoneSlot(long revision, long deletedAt, Location location) {
+        TombstoneSlot at(Location moved) {
+            return new TombstoneSlot(revision, deletedAt, moved);
+        }
+    }
+
+    // The fields the indexes need, read straight from a record's BSON
+    private static final class Fields {
+        private String id;
+        private String userId;
+        private String username;
+        private String email;
+        private long updatedAt;
+        private long deletedAt;
+        private long revision;
+        private Integer keyVersion;
+
+        static Fields read(ByteBuffer document) {
+            Fields fields = new Fields();
+            try (BsonReader reader = new BsonBinaryReader(document)) {
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    String name = reader.readName();
+                    BsonType type = reader.getCurrentBsonType();
+                    switch (name) {
+                        case "_id" -> fields.id = type == BsonType.OBJECT_ID
+                                ? reader.readObjectId().toHexString()
+                                : reader.readString();
+                        case "userId" -> fields.userId = readString(reader, type);
+                        case "username" -> fields.username = readString(reader, type);
+                        case "email" -> fields.email = readString(reader, type);
+                        case "updatedAt" -> fields.updatedAt = readDate(reader, type);
+                        case "deletedAt" -> fields.deletedAt = readDate(reader, type);
+                        case "revision" -> fields.revision = type == BsonType.INT64 ? reader.readInt64()
+                                : type == BsonType.INT32 ? reader.readInt32() : skip(reader);
+                        case "keyVersion" -> fields.keyVersion = type == BsonType.INT32 ? reader.readInt32() : null;
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.readEndDocument();
+            }
+            return fields;
+        }
+
+        private static String readString(BsonReader reader, BsonType type) {
+            if (type == BsonType.STRING) {
+                return reader.readString();
+            }
+            reader.skipValue();
+            return null;
+        }
+
+        private static long readDate(BsonReader reader, BsonType type) {
+            return type == BsonType.DATE_TIME ? reader.readDateTime() : skip(reader);
+        }
+
+        private static long skip(BsonReader reader) {
+            reader.skipValue();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.locker.locker.repository.embedded;
+
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Repository
+@ConditionalOnProperty(name = "vault.storage", havingValue = "embedded")
+public class EmbeddedUserRepository implements UserRepository {
+
+    @Autowired
+    private EmbeddedStore store;
+
+    @Override
+    public Optional<User> findById(String id) {
+        return Optional.ofNullable(store.user(id));
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return Optional.ofNullable(store.userByUsername(username));
+    }
+
+    @Override
+    public <S extends User> S insert(S user) {
+        store.insertUser(user);
+        return user;
+    }
+
+    @Override
+    public List<User> findByKeyStateNot(VaultKeyState keyState, Pageable pageable) {
+        return store.users(user -> user.getKeyState() != keyState, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public Long incrementRevision(String userId, int count) {
+        return store.incrementRevision(userId, count);
+    }
+
+    @Override
+    public long findRevision(String userId) {
+        return store.revision(userId);
+    }
+
+    @Override
+    public boolean updateCredentials(User user, String expectedHash) {
+        return store.updateUser(user.getId(),
+                stored -> Objects.equals(stored.getMasterPasswordHash(), expectedHash),
+                stored -> {
+                    stored.setSalt(user.getSalt());
+                    stored.setKdf(user.getKdf());
+                    stored.setMasterPasswordHash(user.getMasterPasswordHash());
+                    stored.setWrappedDataKey(user.getWrappedDataKey());
+                    stored.setKeyState(user.getKeyState());
+                });
+    }
+
+    @Override
+    public boolean claimDataKey(String userId, String wrappedDataKey) {
+        return store.updateUser(userId,
+                stored -> stored.getWrappedDataKey() == null,
+                stored -> {
+                    stored.setWrappedDataKey(wrappedDataKey);
+                    stored.setKeyState(VaultKeyState.MIGRATING);
+                });
+    }
+}
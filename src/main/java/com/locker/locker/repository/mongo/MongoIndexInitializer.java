@@ -0,0 +1,63 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Creates the indexes declared on the documents and refuses to start if any of them is missing afterwards
+@Component
+@ConditionalOnProperty(name = "vault.mongo.ensure-indexes", havingValue = "true", matchIfMissing = true)
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(User.class, PasswordEntry.class, PasswordTombstone.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        for (Class<?> documentType : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(documentType);
+            Set<String> expected = new HashSet<>();
+            for (IndexDefinition index : resolver.resolveIndexFor(documentType)) {
+                indexOps.ensureIndex(index);
+                expected.add((String) index.getIndexOptions().get("name"));
+            }
+
+            Set<String> present = new HashSet<>();
+            for (IndexInfo info : indexOps.getIndexInfo()) {
+                present.add(info.getName());
+            }
+            if (!present.containsAll(expected)) {
+                expected.removeAll(present);
+                throw new IllegalStateException("Missing Mongo indexes on "
+                        + mongoTemplate.getCollectionName(documentType) + ": " + expected);
+            }
+            log.info("Verified Mongo indexes {} on {}", expected, mongoTemplate.getCollectionName(documentType));
+        }
+    }
+}
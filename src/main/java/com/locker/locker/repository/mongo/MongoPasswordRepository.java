@@ -0,0 +1,14 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.repository.PasswordRepository;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+// Listing queries and ciphertext updates live in MongoPasswordRepositoryImpl
+public interface MongoPasswordRepository extends MongoRepository<PasswordEntry, String>, PasswordRepository {
+    @Override
+    List<PasswordEntry> findByUserIdAndIdIn(String userId, Collection<String> ids);
+}
@@ -0,0 +1,107 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.dto.PageCursor;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.repository.PasswordQueries;
+import com.locker.locker.repository.PasswordRepository.SecretUpdate;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class MongoPasswordRepositoryImpl {
+
+    private static final Document SUMMARY_FIELDS = new Document("website", 1)
+            .append("username", 1)
+            .append("notes", 1)
+            .append("createdAt", 1)
+            .append("updatedAt", 1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public Stream<PasswordEntrySummary> streamSummaries(String userId) {
+        return mongoTemplate.query(PasswordEntry.class)
+                .as(PasswordEntrySummary.class)
+                .matching(PasswordQueries.allEntries(userId))
+                .stream();
+    }
+
+    public Stream<RawBsonDocument> streamRawSummaries(String userId, PageCursor after, int limit) {
+        Query query = PasswordQueries.summaryPage(userId, after, limit);
+        // Map property names and values (id -> _id, LocalDateTime -> Date) as the template would
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(PasswordEntry.class);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+        Document sort = queryMapper.getMappedSort(query.getSortObject(), entity);
+
+        MongoCursor<RawBsonDocument> cursor = mongoTemplate.execute(PasswordEntry.class, collection -> collection
+                .withDocumentClass(RawBsonDocument.class)
+                .find(filter)
+                .projection(SUMMARY_FIELDS)
+                .sort(sort)
+                .limit(limit)
+                .iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .onClose(cursor::close);
+    }
+
+    public List<PasswordEntrySummary> findSummariesChangedBetween(String userId, long after, long upTo, int limit) {
+        return mongoTemplate.query(PasswordEntry.class)
+                .as(PasswordEntrySummary.class)
+                .matching(PasswordQueries.changedBetween(userId, after, upTo, limit))
+                .all();
+    }
+
+    public Stream<PasswordEntry> streamEntries(String userId) {
+        return mongoTemplate.stream(PasswordQueries.allEntries(userId), PasswordEntry.class);
+    }
+
+    public List<PasswordEntry> findWithoutDataKey(String userId, int limit) {
+        return mongoTemplate.find(query(where("userId").is(userId).and("keyVersion").is(null)).limit(limit),
+                PasswordEntry.class);
+    }
+
+    public void updateSecrets(List<SecretUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PasswordEntry.class);
+        for (SecretUpdate update : updates) {
+            ops.updateOne(
+                    unchanged(update.entry()),
+                    new Update()
+                            .set("secret", update.secret())
+                            .unset("encryptedPassword")
+                            .unset("iv")
+                            .set("keyVersion", update.keyVersion()));
+        }
+        ops.execute();
+    }
+
+    // The entry as read, in whichever storage format it had
+    private static Query unchanged(PasswordEntry entry) {
+        Criteria criteria = where("_id").is(entry.getId());
+        return query(entry.getSecret() != null
+                ? criteria.and("secret").is(entry.getSecret())
+                : criteria.and("encryptedPassword").is(entry.getEncryptedPassword()));
+    }
+}
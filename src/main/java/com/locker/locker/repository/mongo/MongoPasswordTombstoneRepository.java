@@ -0,0 +1,15 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.repository.PasswordTombstoneRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.List;
+
+public interface MongoPasswordTombstoneRepository extends MongoRepository<PasswordTombstone, String>, PasswordTombstoneRepository {
+    @Override
+    @Query("{ 'userId': ?0, 'revision': { $gt: ?1, $lte: ?2 } }")
+    List<PasswordTombstone> findChanges(String userId, long after, long upTo, Pageable pageable);
+}
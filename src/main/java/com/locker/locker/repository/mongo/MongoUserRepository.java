@@ -0,0 +1,19 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.UserRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+// Conditional updates live in MongoUserRepositoryImpl
+public interface MongoUserRepository extends MongoRepository<User, String>, UserRepository {
+    @Override
+    Optional<User> findByUsername(String username);
+
+    @Override
+    List<User> findByKeyStateNot(VaultKeyState keyState, Pageable pageable);
+}
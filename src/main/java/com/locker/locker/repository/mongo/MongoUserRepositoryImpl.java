@@ -0,0 +1,52 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class MongoUserRepositoryImpl {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public Long incrementRevision(String userId, int count) {
+        Query query = query(where("_id").is(userId));
+        query.fields().include("revision");
+        User user = mongoTemplate.findAndModify(query, new Update().inc("revision", count),
+                FindAndModifyOptions.options().returnNew(true), User.class);
+        return user != null ? user.getRevision() : null;
+    }
+
+    public long findRevision(String userId) {
+        Query query = query(where("_id").is(userId));
+        query.fields().include("revision");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user != null ? user.getRevision() : 0;
+    }
+
+    public boolean updateCredentials(User user, String expectedHash) {
+        return mongoTemplate.updateFirst(
+                query(where("_id").is(user.getId()).and("masterPasswordHash").is(expectedHash)),
+                new Update()
+                        .set("salt", user.getSalt())
+                        .set("kdf", user.getKdf())
+                        .set("masterPasswordHash", user.getMasterPasswordHash())
+                        .set("wrappedDataKey", user.getWrappedDataKey())
+                        .set("keyState", user.getKeyState()),
+                User.class).getModifiedCount() > 0;
+    }
+
+    public boolean claimDataKey(String userId, String wrappedDataKey) {
+        return mongoTemplate.updateFirst(
+                query(where("_id").is(userId).and("wrappedDataKey").exists(false)),
+                new Update().set("wrappedDataKey", wrappedDataKey).set("keyState", VaultKeyState.MIGRATING),
+                User.class).getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.locker.locker.repository.mongo;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.security.CryptoUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+// Repacks entries stored with Base64 encryptedPassword and iv strings into the binary secret field, one batch
+// per run in _id order, until none are left. The ciphertext itself is unchanged, so no keys are needed.
+@Component
+@ConditionalOnProperty(name = "vault.storage-migration.enabled", havingValue = "true", matchIfMissing = true)
+public class StorageFormatMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageFormatMigrationJob.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${vault.storage-migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${vault.storage-migration.interval:1000}") // 1 second in milliseconds
+    private long intervalMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Entries are only ever written in the new format, so the scan never has to go back before this id
+    private String lastId;
+    private long repacked;
+    private long failed;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void runOnce() {
+        try {
+            Query pending = query(where("encryptedPassword").exists(true));
+            if (lastId != null) {
+                pending.addCriteria(where("id").gt(lastId));
+            }
+            pending.fields().include("encryptedPassword", "iv");
+            List<PasswordEntry> batch = mongoTemplate.find(pending.with(Sort.by("id")).limit(batchSize), PasswordEntry.class);
+            if (batch.isEmpty()) {
+                log.info("Storage format migration finished, {} entries repacked{}", repacked,
+                        failed == 0 ? "" : ", " + failed + " left in the old format");
+                scheduler.shutdown();
+                return;
+            }
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PasswordEntry.class);
+            int queued = 0;
+            for (PasswordEntry entry : batch) {
+                try {
+                    byte[] secret = CryptoUtils.pack(entry.getEncryptedPassword(), entry.getIv());
+                    // Matching on the old ciphertext lets a concurrent write win; it already used the new format
+                    ops.updateOne(
+                            query(where("_id").is(entry.getId()).and("encryptedPassword").is(entry.getEncryptedPassword())),
+                            new Update().set("secret", secret).unset("encryptedPassword").unset("iv"));
+                    queued++;
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("Could not repack entry {}: {}", entry.getId(), e.getMessage());
+                }
+            }
+            if (queued > 0) {
+                repacked += ops.execute().getModifiedCount();
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        } catch (Exception e) {
+            log.warn("Storage format migration run failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,197 @@
+package com.locker.locker.search;
+
+import com.locker.locker.dto.PasswordEntrySummary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Trigram index over website, username and notes of one user's entries.
+// Prefix and substring hits are ranked with website hits first; fuzzy trigram matches are
+// returned only when nothing matches directly, so a typo still finds the entry.
+class UserSearchIndex {
+
+    // Share of the query's trigrams an entry must contain to count as a fuzzy match
+    private static final double FUZZY_THRESHOLD = 0.5;
+
+    private final Map<String, IndexedEntry> entries = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void put(PasswordEntrySummary summary) {
+        IndexedEntry entry = new IndexedEntry(summary);
+        lock.writeLock().lock();
+        try {
+            IndexedEntry previous = entries.put(summary.getId(), entry);
+            if (previous != null) {
+                unlink(previous);
+            }
+            for (String trigram : entry.trigrams) {
+                postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(summary.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            IndexedEntry previous = entries.remove(id);
+            if (previous != null) {
+                unlink(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<PasswordEntrySummary> search(String query) {
+        String q = normalize(query);
+        lock.readLock().lock();
+        try {
+            List<ScoredEntry> matches = new ArrayList<>();
+            if (q.isEmpty()) {
+                for (IndexedEntry entry : entries.values()) {
+                    matches.add(new ScoredEntry(entry, 0));
+                }
+            } else {
+                Set<String> queryTrigrams = trigrams(q);
+                Map<String, Integer> trigramHits = new HashMap<>();
+                for (String trigram : queryTrigrams) {
+                    for (String id : postings.getOrDefault(trigram, Set.of())) {
+                        trigramHits.merge(id, 1, Integer::sum);
+                    }
+                }
+                // Short queries have no trigrams, so every entry is a candidate for prefix matching;
+                // otherwise a direct hit must contain every trigram of the query
+                Iterable<String> candidates = q.length() < 3 ? entries.keySet() : trigramHits.keySet();
+                for (String id : candidates) {
+                    if (q.length() >= 3 && trigramHits.get(id) < queryTrigrams.size()) {
+                        continue;
+                    }
+                    IndexedEntry entry = entries.get(id);
+                    int score = entry.score(q);
+                    if (score > 0) {
+                        matches.add(new ScoredEntry(entry, score));
+                    }
+                }
+                // Fuzzy matches only stand in for typos; any direct hit makes them noise
+                if (matches.isEmpty()) {
+                    for (Map.Entry<String, Integer> hit : trigramHits.entrySet()) {
+                        double similarity = hit.getValue() / (double) queryTrigrams.size();
+                        if (similarity >= FUZZY_THRESHOLD) {
+                            matches.add(new ScoredEntry(entries.get(hit.getKey()), (int) Math.round(similarity * 30)));
+                        }
+                    }
+                }
+            }
+
+            matches.sort(Comparator.comparingInt(ScoredEntry::score).reversed()
+                    .thenComparing(match -> match.entry.website));
+            List<PasswordEntrySummary> results = new ArrayList<>(matches.size());
+            for (ScoredEntry match : matches) {
+                results.add(match.entry.summary);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unlink(IndexedEntry entry) {
+        for (String trigram : entry.trigrams) {
+            Set<String> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(entry.summary.getId());
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private record ScoredEntry(IndexedEntry entry, int score) {
+    }
+
+    private static final class IndexedEntry {
+        private final PasswordEntrySummary summary;
+        private final String website;
+        private final String username;
+        private final String notes;
+        private final Set<String> trigrams;
+
+        private IndexedEntry(PasswordEntrySummary summary) {
+            this.summary = summary;
+            this.website = normalize(summary.getWebsite());
+            this.username = normalize(summary.getUsername());
+            this.notes = normalize(summary.getNotes());
+            this.trigrams = new HashSet<>();
+            trigrams.addAll(trigrams(website));
+            trigrams.addAll(trigrams(username));
+            trigrams.addAll(trigrams(notes));
+        }
+
+        private int score(String q) {
+            if (website.startsWith(q)) {
+                return 100;
+            }
+            if (hasWordStartingWith(website, q)) {
+                return 90;
+            }
+            if (website.contains(q)) {
+                return 80;
+            }
+            if (username.startsWith(q) || hasWordStartingWith(username, q)) {
+                return 70;
+            }
+            if (username.contains(q)) {
+                return 60;
+            }
+            if (hasWordStartingWith(notes, q) || notes.startsWith(q)) {
+                return 50;
+            }
+            if (notes.contains(q)) {
+                return 40;
+            }
+            return 0;
+        }
+
+        private static boolean hasWordStartingWith(String value, String q) {
+            for (int i = value.indexOf(q); i > 0; i = value.indexOf(q, i + 1)) {
+                if (!Character.isLetterOrDigit(value.charAt(i - 1))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.locker.locker.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.repository.PasswordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// In-memory search indexes, one per user, built on the first search and kept current by the
+// vault mutation paths. Indexes are weighed by entry count and the least recently used ones
+// are dropped once the total passes vault.search.max-indexed-entries.
+@Component
+public class VaultSearchIndex {
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    private final Cache<String, UserSearchIndex> indexes;
+
+    public VaultSearchIndex(@Value("${vault.search.max-indexed-entries:200000}") long maxIndexedEntries,
+                            @Value("${vault.search.idle-ttl:1800000}") long idleTtlMillis) { // 30 minutes in milliseconds
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxIndexedEntries)
+                .weigher((String userId, UserSearchIndex index) -> Math.max(1, index.size()))
+                .expireAfterAccess(idleTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public List<PasswordEntrySummary> search(String userId, String query) {
+        return indexes.get(userId, this::build).search(query);
+    }
+
+    // Updates run inside compute so they wait for an in-flight build instead of racing it;
+    // both updates are idempotent, so an entry the build already saw is simply rewritten.
+    public void onSaved(String userId, PasswordEntrySummary entry) {
+        indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            index.put(entry);
+            return index;
+        });
+    }
+
+    public void onDeleted(String userId, String entryId) {
+        indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            index.remove(entryId);
+            return index;
+        });
+    }
+
+    // Drop a user's index after bulk changes; the next search rebuilds it
+    public void invalidate(String userId) {
+        indexes.invalidate(userId);
+    }
+
+    private UserSearchIndex build(String userId) {
+        UserSearchIndex index = new UserSearchIndex();
+        try (Stream<PasswordEntrySummary> summaries = passwordRepository.streamSummaries(userId)) {
+            summaries.forEach(index::put);
+        }
+        return index;
+    }
+}
@@ -1,16 +1,18 @@
 package com.locker.locker.security;
 
+import com.locker.locker.metrics.VaultMetrics;
+import com.locker.locker.model.KdfSpec;
+import com.locker.locker.security.kdf.Kdfs;
+
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Base64;
 
 public class CryptoUtils {
@@ -18,58 +20,212 @@ public class CryptoUtils {
     private static final int GCM_TAG_LENGTH = 128;
     private static final int GCM_IV_LENGTH = 12;
     private static final int KEY_LENGTH = 256;
-    private static final int ITERATION_COUNT = 65536;
+    private static final byte SECRET_FORMAT = 1; // first byte of a sealed secret: iv || ciphertext || tag follow
+    private static final int SECRET_HEADER_LENGTH = 1 + GCM_IV_LENGTH;
+    private static final byte[] VERIFIER_LABEL = "locker-master-verifier".getBytes(StandardCharsets.UTF_8);
+
+    // Cipher instances are not thread-safe but are cheap to re-init, so each worker thread keeps one
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (Exception e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    });
 
     // Generate a random salt for password hashing
     public static String generateSalt() {
-        SecureRandom random = new SecureRandom();
         byte[] salt = new byte[16];
-        random.nextBytes(salt);
+        DrbgPool.current().nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
 
-    // Hash the master password using PBKDF2
-    public static String hashPassword(String password, String salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
-        byte[] saltBytes = Base64.getDecoder().decode(salt);
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), saltBytes, ITERATION_COUNT, KEY_LENGTH);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        byte[] hash = factory.generateSecret(spec).getEncoded();
-        return Base64.getEncoder().encodeToString(hash);
+    // Hash the master password using the original PBKDF2 parameters
+    public static String hashPassword(String password, String salt) throws GeneralSecurityException {
+        return hashPassword(password, salt, null);
+    }
+
+    // Hash the master password with the given KDF; null means the original PBKDF2 parameters
+    public static String hashPassword(String password, String salt, KdfSpec kdf) throws GeneralSecurityException {
+        return Base64.getEncoder().encodeToString(deriveKey(password, salt, kdf));
+    }
+
+    // Derive the raw AES key bytes from the master password; the stored master hash is their Base64 form
+    public static byte[] deriveKey(String password, String salt) throws GeneralSecurityException {
+        return deriveKey(password, salt, null);
+    }
+
+    public static byte[] deriveKey(String password, String salt, KdfSpec kdf) throws GeneralSecurityException {
+        KdfSpec spec = kdf != null ? kdf : KdfSpec.legacy();
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "kdf", () -> {
+            char[] chars = password.toCharArray();
+            try {
+                return Kdfs.get(spec.getAlgorithm()).derive(chars, Base64.getDecoder().decode(salt), spec.getParams(), KEY_LENGTH / 8);
+            } finally {
+                Arrays.fill(chars, '\0');
+            }
+        });
+    }
+
+    // Check derived key bytes against the stored master hash in constant time
+    public static boolean matchesHash(byte[] derivedKey, String storedHash) {
+        return MessageDigest.isEqual(derivedKey, Base64.getDecoder().decode(storedHash));
+    }
+
+    // Stored in place of the master hash once the vault has a wrapped data key, so the database never holds the wrapping key
+    public static String masterVerifier(byte[] masterKey) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(masterKey, "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(VERIFIER_LABEL));
+    }
+
+    // Generate a random AES key for encrypting a user's entries
+    public static byte[] generateDataKey() {
+        byte[] key = new byte[KEY_LENGTH / 8];
+        DrbgPool.current().nextBytes(key);
+        return key;
+    }
+
+    // Encrypt a data key with the master-derived key; the result is Base64(iv || ciphertext || tag)
+    public static String wrapKey(byte[] dataKey, byte[] masterKey) throws GeneralSecurityException {
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "wrap", () -> {
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            DrbgPool.current().nextBytes(iv);
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(masterKey, "AES"), new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            byte[] wrapped = Arrays.copyOf(iv, GCM_IV_LENGTH + cipher.getOutputSize(dataKey.length));
+            cipher.doFinal(dataKey, 0, dataKey.length, wrapped, GCM_IV_LENGTH);
+            return Base64.getEncoder().encodeToString(wrapped);
+        });
+    }
+
+    public static byte[] unwrapKey(String wrappedKey, byte[] masterKey) throws GeneralSecurityException {
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "unwrap", () -> {
+            byte[] wrapped = Base64.getDecoder().decode(wrappedKey);
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(masterKey, "AES"),
+                    new GCMParameterSpec(GCM_TAG_LENGTH, wrapped, 0, GCM_IV_LENGTH));
+            return cipher.doFinal(wrapped, GCM_IV_LENGTH, wrapped.length - GCM_IV_LENGTH);
+        });
     }
 
     // Generate a secret key from the master password and salt
-    private static SecretKey getSecretKey(String password, String salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
-        byte[] saltBytes = Base64.getDecoder().decode(salt);
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), saltBytes, ITERATION_COUNT, KEY_LENGTH);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        byte[] secretKeyBytes = factory.generateSecret(spec).getEncoded();
-        return new SecretKeySpec(secretKeyBytes, "AES");
+    private static SecretKey getSecretKey(String password, String salt) throws GeneralSecurityException {
+        return new SecretKeySpec(deriveKey(password, salt), "AES");
     }
 
     // Generate a random initialization vector (IV)
     public static String generateIv() {
         byte[] iv = new byte[GCM_IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
+        DrbgPool.current().nextBytes(iv);
         return Base64.getEncoder().encodeToString(iv);
     }
 
     // Encrypt a password using AES-GCM
     public static String encryptPassword(String password, String masterPassword, String salt, String iv) throws Exception {
-        SecretKey key = getSecretKey(masterPassword, salt);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, Base64.getDecoder().decode(iv));
-        cipher.init(Cipher.ENCRYPT_MODE, key, parameterSpec);
-        byte[] encryptedBytes = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(encryptedBytes);
+        return encryptPassword(password, getSecretKey(masterPassword, salt), iv);
+    }
+
+    // Encrypt a password using AES-GCM with an already derived key
+    public static String encryptPassword(String password, SecretKey key, String iv) throws Exception {
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "encrypt", () -> {
+            Cipher cipher = CIPHERS.get();
+            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, Base64.getDecoder().decode(iv));
+            cipher.init(Cipher.ENCRYPT_MODE, key, parameterSpec);
+            byte[] encryptedBytes = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(encryptedBytes);
+        });
     }
 
     // Decrypt a password using AES-GCM
     public static String decryptPassword(String encryptedPassword, String masterPassword, String salt, String iv) throws Exception {
-        SecretKey key = getSecretKey(masterPassword, salt);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, Base64.getDecoder().decode(iv));
-        cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
-        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedPassword));
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
-    }
-}
\ No newline at end of file
+        return decryptPassword(encryptedPassword, getSecretKey(masterPassword, salt), iv);
+    }
+
+    // Decrypt a password using AES-GCM with an already derived key
+    public static String decryptPassword(String encryptedPassword, SecretKey key, String iv) throws Exception {
+        return toText(decryptPasswordBytes(encryptedPassword, key, iv));
+    }
+
+    // The UTF-8 plaintext, for callers that zero it once they are done with it
+    public static byte[] decryptPasswordBytes(String encryptedPassword, SecretKey key, String iv) throws Exception {
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "decrypt", () -> {
+            Cipher cipher = CIPHERS.get();
+            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, Base64.getDecoder().decode(iv));
+            cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
+            return cipher.doFinal(Base64.getDecoder().decode(encryptedPassword));
+        });
+    }
+
+    // Encrypt a password into the binary entry format: format byte || iv || ciphertext || tag, no Base64
+    public static byte[] seal(String password, SecretKey key) throws Exception {
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "encrypt", () -> {
+            byte[] plaintext = password.getBytes(StandardCharsets.UTF_8);
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            DrbgPool.current().nextBytes(iv);
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            byte[] sealed = new byte[SECRET_HEADER_LENGTH + cipher.getOutputSize(plaintext.length)];
+            sealed[0] = SECRET_FORMAT;
+            System.arraycopy(iv, 0, sealed, 1, GCM_IV_LENGTH);
+            cipher.doFinal(plaintext, 0, plaintext.length, sealed, SECRET_HEADER_LENGTH);
+            return sealed;
+        });
+    }
+
+    public static String open(byte[] sealed, SecretKey key) throws Exception {
+        return toText(openBytes(sealed, key));
+    }
+
+    // The UTF-8 plaintext, for callers that zero it once they are done with it
+    public static byte[] openBytes(byte[] sealed, SecretKey key) throws Exception {
+        checkFormat(sealed);
+        return VaultMetrics.time(VaultMetrics.CRYPTO, "decrypt", () -> {
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, sealed, 1, GCM_IV_LENGTH));
+            return cipher.doFinal(sealed, SECRET_HEADER_LENGTH, sealed.length - SECRET_HEADER_LENGTH);
+        });
+    }
+
+    // Repack a Base64 ciphertext and IV into the binary format without decrypting them
+    public static byte[] pack(String encryptedPassword, String iv) throws GeneralSecurityException {
+        if (encryptedPassword == null || iv == null) {
+            throw new GeneralSecurityException("Missing ciphertext or IV");
+        }
+        byte[] ivBytes = Base64.getDecoder().decode(iv);
+        byte[] ciphertext = Base64.getDecoder().decode(encryptedPassword);
+        if (ivBytes.length != GCM_IV_LENGTH) {
+            throw new GeneralSecurityException("Unexpected IV length " + ivBytes.length);
+        }
+        byte[] sealed = new byte[SECRET_HEADER_LENGTH + ciphertext.length];
+        sealed[0] = SECRET_FORMAT;
+        System.arraycopy(ivBytes, 0, sealed, 1, GCM_IV_LENGTH);
+        System.arraycopy(ciphertext, 0, sealed, SECRET_HEADER_LENGTH, ciphertext.length);
+        return sealed;
+    }
+
+    // The Base64 ciphertext and IV of a sealed secret, for exports that keep the original fields
+    public static String sealedCiphertext(byte[] sealed) throws GeneralSecurityException {
+        checkFormat(sealed);
+        return Base64.getEncoder().encodeToString(Arrays.copyOfRange(sealed, SECRET_HEADER_LENGTH, sealed.length));
+    }
+
+    public static String sealedIv(byte[] sealed) throws GeneralSecurityException {
+        checkFormat(sealed);
+        return Base64.getEncoder().encodeToString(Arrays.copyOfRange(sealed, 1, SECRET_HEADER_LENGTH));
+    }
+
+    private static String toText(byte[] plaintext) {
+        try {
+            return new String(plaintext, StandardCharsets.UTF_8);
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    private static void checkFormat(byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length < SECRET_HEADER_LENGTH + GCM_TAG_LENGTH / 8 || sealed[0] != SECRET_FORMAT) {
+            throw new GeneralSecurityException("Unsupported secret format");
+        }
+    }
+}
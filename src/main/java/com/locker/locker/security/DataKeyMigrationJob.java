@@ -0,0 +1,87 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Moves vaults created before data keys existed onto one, a few users per run, until none are left
+@Component
+@ConditionalOnProperty(name = "vault.data-key-migration.enabled", havingValue = "true", matchIfMissing = true)
+public class DataKeyMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(DataKeyMigrationJob.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataKeyService dataKeyService;
+
+    @Value("${vault.data-key-migration.users-per-run:50}")
+    private int usersPerRun;
+
+    @Value("${vault.data-key-migration.interval:10000}") // 10 seconds in milliseconds
+    private long intervalMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-key-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Users whose migration failed are skipped until the next restart instead of being retried every run
+    private final Set<String> failed = new HashSet<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void runOnce() {
+        try {
+            List<User> pending = userRepository.findByKeyStateNot(VaultKeyState.ENVELOPE,
+                    PageRequest.of(0, usersPerRun + failed.size()));
+            int migrated = 0;
+            for (User user : pending) {
+                if (failed.contains(user.getId())) {
+                    continue;
+                }
+                try {
+                    dataKeyService.migrate(user);
+                    migrated++;
+                } catch (Exception e) {
+                    failed.add(user.getId());
+                    log.warn("Could not move user {} to a data key: {}", user.getId(), e.getMessage());
+                }
+            }
+            if (migrated == 0) {
+                log.info("Data key migration finished{}", failed.isEmpty() ? "" : ", " + failed.size() + " users failed");
+                scheduler.shutdown();
+            }
+        } catch (Exception e) {
+            log.warn("Data key migration run failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
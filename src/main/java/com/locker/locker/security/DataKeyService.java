@@ -0,0 +1,149 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.KdfSpec;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.repository.PasswordRepository.SecretUpdate;
+import com.locker.locker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+// Manages the per-user data key that encrypts vault entries. Changing the master password or its
+// KDF only re-wraps this key; moving a legacy vault onto it re-encrypts each entry exactly once.
+@Component
+public class DataKeyService {
+
+    private static final Logger log = LoggerFactory.getLogger(DataKeyService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Autowired
+    private KdfExecutor kdfExecutor;
+
+    @Autowired
+    private VaultKeyCache vaultKeyCache;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Value("${vault.data-key-migration.batch-size:200}")
+    private int batchSize;
+
+    // Move a LEGACY or MIGRATING user onto a data key and return the updated user.
+    // Their stored hash is still the master key itself, so no password is needed.
+    public User migrate(User user) throws Exception {
+        if (user.effectiveKeyState() == VaultKeyState.ENVELOPE) {
+            return user;
+        }
+        byte[] masterKey = Base64.getDecoder().decode(user.getMasterPasswordHash());
+        byte[] dataKey = null;
+        try {
+            if (user.effectiveKeyState() == VaultKeyState.LEGACY) {
+                user = claim(user, masterKey);
+                if (user.effectiveKeyState() == VaultKeyState.ENVELOPE) {
+                    return user;
+                }
+            }
+            dataKey = CryptoUtils.unwrapKey(user.getWrappedDataKey(), masterKey);
+            int migrated = reencryptEntries(user.getId(), masterKey, dataKey);
+
+            // The hash only changes by leaving MIGRATING, so matching on it also checks the state
+            String previousHash = user.getMasterPasswordHash();
+            user.setMasterPasswordHash(CryptoUtils.masterVerifier(masterKey));
+            user.setKeyState(VaultKeyState.ENVELOPE);
+            userRepository.updateCredentials(user, previousHash);
+            log.info("Moved {} entries of user {} to a data key", migrated, user.getId());
+            return userRepository.findById(user.getId()).orElse(user);
+        } finally {
+            userCache.invalidate(user);
+            Arrays.fill(masterKey, (byte) 0);
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        }
+    }
+
+    // Re-wrap the data key under a new master password; entries are not touched
+    public void rewrap(User user, byte[] dataKey, String masterPassword, KdfSpec kdf) throws Exception {
+        String previousHash = user.getMasterPasswordHash();
+        String salt = CryptoUtils.generateSalt();
+        byte[] masterKey = kdfExecutor.call(() -> CryptoUtils.deriveKey(masterPassword, salt, kdf));
+        try {
+            VaultKey.seal(user, dataKey, masterKey);
+        } finally {
+            Arrays.fill(masterKey, (byte) 0);
+        }
+        user.setSalt(salt);
+        user.setKdf(kdf);
+        user.setKeyState(VaultKeyState.ENVELOPE);
+
+        // Conditional on the old hash so two concurrent changes cannot both win
+        boolean updated = userRepository.updateCredentials(user, previousHash);
+        userCache.invalidate(user);
+        if (!updated) {
+            throw new VaultAccessException(HttpStatus.CONFLICT, "Master password was changed concurrently");
+        }
+    }
+
+    // Assign a data key unless another node or request already did
+    private User claim(User user, byte[] masterKey) throws Exception {
+        byte[] dataKey = CryptoUtils.generateDataKey();
+        String wrapped;
+        try {
+            wrapped = CryptoUtils.wrapKey(dataKey, masterKey);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+        boolean claimed = userRepository.claimDataKey(user.getId(), wrapped);
+
+        // Sessions unlocked before the claim hold no data key and would keep writing master-key entries
+        vaultKeyCache.invalidateUser(user.getId());
+
+        if (!claimed) {
+            return userRepository.findById(user.getId())
+                    .orElseThrow(() -> new IllegalStateException("User " + user.getId() + " disappeared during migration"));
+        }
+        user.setWrappedDataKey(wrapped);
+        user.setKeyState(VaultKeyState.MIGRATING);
+        return user;
+    }
+
+    private int reencryptEntries(String userId, byte[] masterKey, byte[] dataKey) throws Exception {
+        SecretKey oldKey = new SecretKeySpec(masterKey, "AES");
+        SecretKey newKey = new SecretKeySpec(dataKey, "AES");
+        int migrated = 0;
+        while (true) {
+            List<PasswordEntry> batch = passwordRepository.findWithoutDataKey(userId, batchSize);
+            if (batch.isEmpty()) {
+                return migrated;
+            }
+            List<SecretUpdate> updates = new ArrayList<>(batch.size());
+            for (PasswordEntry entry : batch) {
+                String password = entry.getSecret() != null
+                        ? CryptoUtils.open(entry.getSecret(), oldKey)
+                        : CryptoUtils.decryptPassword(entry.getEncryptedPassword(), oldKey, entry.getIv());
+                // Applied only to the ciphertext as read; after a concurrent edit the entry is already on the data key
+                updates.add(new SecretUpdate(entry, CryptoUtils.seal(password, newKey), PasswordEntry.DATA_KEY));
+            }
+            passwordRepository.updateSecrets(updates);
+            migrated += batch.size();
+        }
+    }
+}
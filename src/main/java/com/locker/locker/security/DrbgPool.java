@@ -0,0 +1,39 @@
+package com.locker.locker.security;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+// Shared DRBG instances for salts, IVs, data keys and generated passwords. Creating a SecureRandom per
+// call pays for seeding every time, and a single shared instance serializes every caller on its lock, so
+// threads are spread over a few striped instances instead, two per core. Striping rather than one per
+// thread keeps virtual threads, which are created per request, from each seeding their own generator.
+public final class DrbgPool {
+
+    private static final SecureRandom[] STRIPES;
+    private static final int MASK;
+
+    static {
+        int stripes = Integer.highestOneBit(Math.max(2, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+        STRIPES = new SecureRandom[stripes];
+        MASK = stripes - 1;
+        for (int i = 0; i < stripes; i++) {
+            try {
+                // 256-bit AES-CTR or SHA-256 DRBG, reseeded from the system entropy source as it deems necessary
+                STRIPES[i] = SecureRandom.getInstance("DRBG",
+                        DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("DRBG is not available", e);
+            }
+        }
+    }
+
+    private DrbgPool() {
+    }
+
+    // The stripe for the calling thread; thread ids are mixed so consecutive ids land on different stripes
+    public static SecureRandom current() {
+        long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return STRIPES[(int) (id >>> 32) & MASK];
+    }
+}
@@ -0,0 +1,18 @@
+package com.locker.locker.security;
+
+import lombok.Value;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+// Claims of a verified token, published by JwtAuthenticationFilter as the request principal
+@Value
+public class JwtPrincipal implements AuthenticatedPrincipal {
+    String userId;
+    String username;
+    long expiresAt; // Token expiry in epoch milliseconds
+    String sessionId; // Digest of the token, identifies the session without keeping the token
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,123 @@
+package com.locker.locker.security;
+
+import com.locker.locker.metrics.VaultMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs password hashing on a fixed pool sized to the cores, off the request threads.
+// The queue in front of it is bounded: once it is full new work is refused with
+// KdfOverloadedException (429 + Retry-After) instead of piling up request threads,
+// so cheap endpoints keep their latency during login storms.
+@Component
+public class KdfExecutor {
+
+    private final ThreadPoolExecutor pool;
+
+    private final long retryAfterSeconds;
+
+    private final Timer queueWait;
+
+    private final Counter rejected;
+
+    public KdfExecutor(@Value("${vault.kdf.threads:0}") int threads, // 0 means one per core
+                       @Value("${vault.kdf.queue-capacity:64}") int queueCapacity,
+                       @Value("${vault.kdf.retry-after-seconds:1}") long retryAfterSeconds,
+                       MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kdf-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.queueWait = Timer.builder("vault.kdf.queue.wait")
+                .description("Time KDF work waits for a worker")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("vault.kdf.rejected")
+                .description("KDF work refused because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("vault.kdf.queue.depth", pool, p -> p.getQueue().size())
+                .description("KDF work waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("vault.kdf.active", pool, ThreadPoolExecutor::getActiveCount)
+                .description("KDF workers currently hashing")
+                .register(meterRegistry);
+    }
+
+    // Run a KDF task on the pool and wait for its result
+    public <T> T call(Callable<T> task) throws Exception {
+        CompletableFuture<T> future = submit(task);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    // Queue a KDF task without blocking the caller; throws KdfOverloadedException when the queue is full
+    public <T> CompletableFuture<T> submit(Callable<T> task) throws KdfOverloadedException {
+        long enqueuedAt = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            pool.execute(VaultMetrics.propagate(() -> {
+                queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new KdfOverloadedException(retryAfterSeconds);
+        }
+        return future;
+    }
+
+    // Reactive form of submit for the WebFlux controllers; rejection arrives as an error signal
+    public <T> Mono<T> callReactive(Callable<T> task) {
+        return Mono.defer(() -> {
+            try {
+                return Mono.fromFuture(submit(task));
+            } catch (KdfOverloadedException e) {
+                return Mono.error(e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,23 @@
+package com.locker.locker.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// The KDF pool and its queue are full; the client should retry after the given delay
+public class KdfOverloadedException extends VaultAccessException {
+
+    private final long retryAfterSeconds;
+
+    public KdfOverloadedException(long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Server is busy, please retry shortly");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public ResponseEntity<?> toResponse() {
+        return ResponseEntity.status(getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(getMessage());
+    }
+}
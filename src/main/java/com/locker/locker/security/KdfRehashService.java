@@ -0,0 +1,45 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.security.kdf.KdfPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+// Upgrades a master hash that no longer matches the KDF policy while the plaintext password is at hand.
+// Only the wrapped data key changes; vault entries are not re-encrypted.
+@Component
+public class KdfRehashService {
+
+    private static final Logger log = LoggerFactory.getLogger(KdfRehashService.class);
+
+    @Autowired
+    private KdfPolicy kdfPolicy;
+
+    @Autowired
+    private DataKeyService dataKeyService;
+
+    // masterKey must be the key just verified against the stored hash
+    public boolean rehashIfOutdated(User user, String masterPassword, byte[] masterKey) throws Exception {
+        if (!kdfPolicy.isOutdated(user.getKdf())) {
+            return false;
+        }
+        // Vaults still on the master key are upgraded on a login after their data key migration
+        if (user.effectiveKeyState() != VaultKeyState.ENVELOPE) {
+            return false;
+        }
+
+        byte[] dataKey = VaultKey.unwrapDataKey(user, masterKey);
+        try {
+            dataKeyService.rewrap(user, dataKey, masterPassword, kdfPolicy.current());
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+        log.info("Rehashed master password of user {} with {}", user.getId(), user.getKdf().getAlgorithm());
+        return true;
+    }
+}
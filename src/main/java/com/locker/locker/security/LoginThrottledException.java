@@ -0,0 +1,23 @@
+package com.locker.locker.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// Too many login attempts for this username or client address; the client should retry after the given delay
+public class LoginThrottledException extends VaultAccessException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts, please retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public ResponseEntity<?> toResponse() {
+        return ResponseEntity.status(getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(getMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+// Non-blocking counterpart of VaultKeyService for the WebFlux API; shares the same key cache and KDF pool
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveVaultKeyService {
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private VaultKeyCache vaultKeyCache;
+
+    @Autowired
+    private KdfExecutor kdfExecutor;
+
+    public Mono<Long> unlock(JwtPrincipal principal, String masterPassword) {
+        if (masterPassword == null || masterPassword.isEmpty()) {
+            return Mono.error(new VaultAccessException(HttpStatus.BAD_REQUEST, "Master password is required"));
+        }
+        return deriveVerifiedKeys(principal.getUserId(), masterPassword)
+                .map(keys -> vaultKeyCache.put(principal.getSessionId(), principal.getUserId(), keys[0], keys[1], principal.getExpiresAt()));
+    }
+
+    public void lock(String sessionId) {
+        vaultKeyCache.invalidate(sessionId);
+    }
+
+    public Mono<VaultKey> resolve(JwtPrincipal principal, String masterPassword) {
+        VaultKey cached = vaultKeyCache.get(principal.getSessionId());
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        if (masterPassword == null || masterPassword.isEmpty()) {
+            return Mono.error(new VaultAccessException(HttpStatus.BAD_REQUEST, "Master password is required"));
+        }
+        return deriveVerifiedKeys(principal.getUserId(), masterPassword)
+                .map(keys -> {
+                    try {
+                        return new VaultKey(keys[0], keys[1]);
+                    } finally {
+                        for (byte[] key : keys) {
+                            if (key != null) {
+                                Arrays.fill(key, (byte) 0);
+                            }
+                        }
+                    }
+                });
+    }
+
+    // Emits {dataKey, masterKey}; the data key is null while the user is still LEGACY
+    private Mono<byte[][]> deriveVerifiedKeys(String userId, String masterPassword) {
+        return userCache.findByIdReactive(userId)
+                .switchIfEmpty(Mono.error(new VaultAccessException(HttpStatus.UNAUTHORIZED, "User not found")))
+                .flatMap((User user) -> kdfExecutor.callReactive(() -> CryptoUtils.deriveKey(masterPassword, user.getSalt(), user.getKdf()))
+                        .flatMap(masterKey -> {
+                            try {
+                                if (!VaultKey.verify(user, masterKey)) {
+                                    Arrays.fill(masterKey, (byte) 0);
+                                    return Mono.error(new VaultAccessException(HttpStatus.UNAUTHORIZED, "Invalid master password"));
+                                }
+                                return Mono.just(new byte[][]{VaultKey.unwrapDataKey(user, masterKey), masterKey});
+                            } catch (GeneralSecurityException e) {
+                                return Mono.error(e);
+                            }
+                        }));
+    }
+}
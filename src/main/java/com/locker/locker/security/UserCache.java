@@ -0,0 +1,119 @@
+package com.locker.locker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.locker.locker.model.User;
+import com.locker.locker.repository.ReactiveUserRepository;
+import com.locker.locker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Users by id, plus a username -> id index for logins, so vault requests stop reading the user
+// document for a salt and hash that almost never change. Entries live for vault.user-cache.ttl at
+// most; DataKeyService and registration invalidate them on credential changes, which like the
+// other in-memory caches assumes one node (other nodes catch up within the TTL).
+// Callers get their own copy and may modify it. The revision field is not kept current here.
+@Component
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired(required = false) // Only the reactive stack on Mongo storage has one
+    private ReactiveUserRepository reactiveUserRepository;
+
+    private final Cache<String, User> usersById;
+
+    private final Cache<String, String> idsByUsername;
+
+    // Bumped by every invalidation; a load that overlapped one is returned but not cached, so it cannot
+    // put back a user read before the change. Invalidations are rare, so this costs almost no hits.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(@Value("${vault.user-cache.max-size:10000}") long maxSize,
+                     @Value("${vault.user-cache.ttl:60000}") long ttlMillis, // 1 minute in milliseconds
+                     MeterRegistry meterRegistry) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.idsByUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .build();
+        // Hits, misses, evictions and size as cache_gets / cache_evictions / cache_size{cache="users"}
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users");
+    }
+
+    public Optional<User> findById(String userId) {
+        User cached = usersById.getIfPresent(userId);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        long seen = invalidations.get();
+        return userRepository.findById(userId).map(user -> remember(user, seen));
+    }
+
+    public Optional<User> findByUsername(String username) {
+        String userId = idsByUsername.getIfPresent(username);
+        User cached = userId != null ? usersById.getIfPresent(userId) : null;
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        long seen = invalidations.get();
+        return userRepository.findByUsername(username).map(user -> remember(user, seen));
+    }
+
+    public Mono<User> findByIdReactive(String userId) {
+        User cached = usersById.getIfPresent(userId);
+        if (cached != null) {
+            return Mono.just(copy(cached));
+        }
+        long seen = invalidations.get();
+        return reactiveUserRepository.findById(userId).map(user -> remember(user, seen));
+    }
+
+    public Mono<User> findByUsernameReactive(String username) {
+        String userId = idsByUsername.getIfPresent(username);
+        User cached = userId != null ? usersById.getIfPresent(userId) : null;
+        if (cached != null) {
+            return Mono.just(copy(cached));
+        }
+        long seen = invalidations.get();
+        return reactiveUserRepository.findByUsername(username).map(user -> remember(user, seen));
+    }
+
+    public void invalidate(User user) {
+        invalidations.incrementAndGet();
+        if (user.getId() != null) {
+            usersById.invalidate(user.getId());
+        }
+        if (user.getUsername() != null) {
+            idsByUsername.invalidate(user.getUsername());
+        }
+    }
+
+    private User remember(User user, long seenInvalidations) {
+        usersById.put(user.getId(), copy(user));
+        idsByUsername.put(user.getUsername(), user.getId());
+        // Checked after the put, so an invalidation racing with it either sees the entry or is seen here
+        if (invalidations.get() != seenInvalidations) {
+            usersById.invalidate(user.getId());
+        }
+        return user;
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getEmail(), user.getMasterPasswordHash(), user.getSalt(),
+                user.getKdf(), user.getWrappedDataKey(), user.getKeyState(), user.getRevision());
+    }
+}
@@ -0,0 +1,23 @@
+package com.locker.locker.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// Raised when the vault key cannot be resolved for a request; carries the status to answer with
+public class VaultAccessException extends Exception {
+
+    private final HttpStatus status;
+
+    public VaultAccessException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public ResponseEntity<?> toResponse() {
+        return ResponseEntity.status(status).body(getMessage());
+    }
+}
@@ -0,0 +1,71 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+// Keys needed to read and write a user's entries: the unwrapped data key and, for entries
+// not migrated yet, the master-derived key they are still encrypted with.
+public final class VaultKey {
+
+    private final SecretKey dataKey; // null until the user has a data key
+    private final SecretKey masterKey;
+
+    public VaultKey(byte[] dataKey, byte[] masterKey) {
+        this.dataKey = dataKey != null ? new SecretKeySpec(dataKey, "AES") : null;
+        this.masterKey = masterKey != null ? new SecretKeySpec(masterKey, "AES") : null;
+    }
+
+    // Check a freshly derived master key against the user's stored hash or verifier
+    public static boolean verify(User user, byte[] masterKey) throws GeneralSecurityException {
+        if (user.effectiveKeyState() == VaultKeyState.ENVELOPE) {
+            byte[] verifier = Base64.getDecoder().decode(CryptoUtils.masterVerifier(masterKey));
+            return CryptoUtils.matchesHash(verifier, user.getMasterPasswordHash());
+        }
+        return CryptoUtils.matchesHash(masterKey, user.getMasterPasswordHash());
+    }
+
+    // Unwrap the user's data key with a verified master key; null while the user is still LEGACY
+    public static byte[] unwrapDataKey(User user, byte[] masterKey) throws GeneralSecurityException {
+        return user.getWrappedDataKey() != null ? CryptoUtils.unwrapKey(user.getWrappedDataKey(), masterKey) : null;
+    }
+
+    // Store the data key on the user wrapped under the master key, replacing the stored hash with its verifier
+    public static void seal(User user, byte[] dataKey, byte[] masterKey) throws GeneralSecurityException {
+        user.setWrappedDataKey(CryptoUtils.wrapKey(dataKey, masterKey));
+        user.setMasterPasswordHash(CryptoUtils.masterVerifier(masterKey));
+        user.setKeyState(VaultKeyState.ENVELOPE);
+    }
+
+    // Reads both storage formats; entries keep the Base64 fields until the storage migration repacks them
+    public String decrypt(PasswordEntry entry) throws Exception {
+        SecretKey key = entry.getKeyVersion() != null ? dataKey : masterKey;
+        if (entry.getSecret() != null) {
+            return CryptoUtils.open(entry.getSecret(), key);
+        }
+        return CryptoUtils.decryptPassword(entry.getEncryptedPassword(), key, entry.getIv());
+    }
+
+    // Same as decrypt, as UTF-8 bytes the caller zeroes when done, for plaintexts that never leave the server
+    public byte[] decryptBytes(PasswordEntry entry) throws Exception {
+        SecretKey key = entry.getKeyVersion() != null ? dataKey : masterKey;
+        if (entry.getSecret() != null) {
+            return CryptoUtils.openBytes(entry.getSecret(), key);
+        }
+        return CryptoUtils.decryptPasswordBytes(entry.getEncryptedPassword(), key, entry.getIv());
+    }
+
+    // Encrypt under the data key when there is one; new entries of LEGACY users stay on the master key.
+    // Always writes the binary format, dropping the Base64 fields of an older entry.
+    public void encrypt(PasswordEntry entry, String password) throws Exception {
+        entry.setSecret(CryptoUtils.seal(password, dataKey != null ? dataKey : masterKey));
+        entry.setEncryptedPassword(null);
+        entry.setIv(null);
+        entry.setKeyVersion(dataKey != null ? PasswordEntry.DATA_KEY : null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.locker.locker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Holds the vault keys of unlocked sessions, keyed by JWT session id.
+// Entries expire after the configured TTL or with their token, whichever comes first,
+// and the key bytes are zeroed as soon as an entry leaves the cache.
+@Component
+public class VaultKeyCache {
+
+    private final Cache<String, UnlockedKey> keys;
+
+    private final long ttlMillis;
+
+    public VaultKeyCache(@Value("${vault.key-cache.ttl:900000}") long ttlMillis, // 15 minutes in milliseconds
+                         @Value("${vault.key-cache.max-sessions:10000}") long maxSessions) {
+        this.ttlMillis = ttlMillis;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfter(new Expiry<String, UnlockedKey>() {
+                    @Override
+                    public long expireAfterCreate(String sessionId, UnlockedKey key, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, key.expiresAt - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String sessionId, UnlockedKey key, long currentTime, long currentDuration) {
+                        return expireAfterCreate(sessionId, key, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String sessionId, UnlockedKey key, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String sessionId, UnlockedKey key, RemovalCause cause) -> {
+                    if (key != null) {
+                        key.destroy();
+                    }
+                })
+                .build();
+    }
+
+    // Cache the session's keys, taking ownership of the arrays; returns the instant (epoch millis) they will be dropped
+    public long put(String sessionId, String userId, byte[] dataKey, byte[] masterKey, long sessionExpiresAt) {
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, sessionExpiresAt);
+        keys.put(sessionId, new UnlockedKey(userId, dataKey, masterKey, expiresAt));
+        return expiresAt;
+    }
+
+    // Get the keys of an unlocked session, or null when the session is locked
+    public VaultKey get(String sessionId) {
+        UnlockedKey key = keys.getIfPresent(sessionId);
+        return key != null ? key.toVaultKey() : null;
+    }
+
+    public void invalidate(String sessionId) {
+        keys.invalidate(sessionId);
+    }
+
+    // Drop every unlocked session of a user, e.g. after their vault key changed
+    public void invalidateUser(String userId) {
+        keys.asMap().values().removeIf(key -> userId.equals(key.userId));
+    }
+
+    private static final class UnlockedKey {
+        private final String userId;
+        private final byte[] dataKey;
+        private final byte[] masterKey;
+        private final long expiresAt;
+        private boolean destroyed;
+
+        private UnlockedKey(String userId, byte[] dataKey, byte[] masterKey, long expiresAt) {
+            this.userId = userId;
+            this.dataKey = dataKey;
+            this.masterKey = masterKey;
+            this.expiresAt = expiresAt;
+        }
+
+        // Copy under the lock so a concurrent eviction can never hand out zeroed key bytes
+        private synchronized VaultKey toVaultKey() {
+            return destroyed ? null : new VaultKey(dataKey, masterKey);
+        }
+
+        private synchronized void destroy() {
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+            Arrays.fill(masterKey, (byte) 0);
+            destroyed = true;
+        }
+    }
+}
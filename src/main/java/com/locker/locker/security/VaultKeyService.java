@@ -0,0 +1,105 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.User;
+import com.locker.locker.security.kdf.KdfPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+// Resolves the vault keys for an operation with at most one KDF run per request:
+// an unlocked session reuses its cached keys, otherwise the master key is derived from the
+// supplied master password, verified against the stored hash and used to unwrap the data key.
+@Component
+public class VaultKeyService {
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private VaultKeyCache vaultKeyCache;
+
+    @Autowired
+    private KdfExecutor kdfExecutor;
+
+    @Autowired
+    private DataKeyService dataKeyService;
+
+    @Autowired
+    private KdfPolicy kdfPolicy;
+
+    // Verify the master password and keep the unwrapped keys for the rest of the session
+    public long unlock(JwtPrincipal principal, String masterPassword) throws Exception {
+        if (masterPassword == null || masterPassword.isEmpty()) {
+            throw new VaultAccessException(HttpStatus.BAD_REQUEST, "Master password is required");
+        }
+        User user = findUser(principal.getUserId());
+        byte[] masterKey = deriveVerifiedKey(user, masterPassword);
+        byte[] dataKey = VaultKey.unwrapDataKey(user, masterKey);
+        return vaultKeyCache.put(principal.getSessionId(), principal.getUserId(), dataKey, masterKey, principal.getExpiresAt());
+    }
+
+    public void lock(String sessionId) {
+        vaultKeyCache.invalidate(sessionId);
+    }
+
+    // Use the unlocked session keys if present, otherwise derive them once from the master password
+    public VaultKey resolve(JwtPrincipal principal, String masterPassword) throws Exception {
+        VaultKey cached = vaultKeyCache.get(principal.getSessionId());
+        if (cached != null) {
+            return cached;
+        }
+        if (masterPassword == null || masterPassword.isEmpty()) {
+            throw new VaultAccessException(HttpStatus.BAD_REQUEST, "Master password is required");
+        }
+        User user = findUser(principal.getUserId());
+        byte[] masterKey = deriveVerifiedKey(user, masterPassword);
+        byte[] dataKey = VaultKey.unwrapDataKey(user, masterKey);
+        try {
+            return new VaultKey(dataKey, masterKey);
+        } finally {
+            Arrays.fill(masterKey, (byte) 0);
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        }
+    }
+
+    // Change the master password by re-wrapping the data key under the new one; entries are not rewritten
+    public void changeMasterPassword(JwtPrincipal principal, String currentPassword, String newPassword) throws Exception {
+        if (currentPassword == null || currentPassword.isEmpty() || newPassword == null || newPassword.isEmpty()) {
+            throw new VaultAccessException(HttpStatus.BAD_REQUEST, "Current and new master password are required");
+        }
+        User user = findUser(principal.getUserId());
+        byte[] masterKey = deriveVerifiedKey(user, currentPassword);
+        byte[] dataKey = null;
+        try {
+            // A vault still on the master key is moved to a data key first, it would be unreadable afterwards
+            user = dataKeyService.migrate(user);
+            dataKey = VaultKey.unwrapDataKey(user, masterKey);
+            dataKeyService.rewrap(user, dataKey, newPassword, kdfPolicy.current());
+        } finally {
+            Arrays.fill(masterKey, (byte) 0);
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        }
+        // Other sessions have to unlock again with the new password
+        vaultKeyCache.invalidateUser(user.getId());
+    }
+
+    private User findUser(String userId) throws VaultAccessException {
+        return userCache.findById(userId)
+                .orElseThrow(() -> new VaultAccessException(HttpStatus.UNAUTHORIZED, "User not found"));
+    }
+
+    private byte[] deriveVerifiedKey(User user, String masterPassword) throws Exception {
+        byte[] masterKey = kdfExecutor.call(() -> CryptoUtils.deriveKey(masterPassword, user.getSalt(), user.getKdf()));
+        if (!VaultKey.verify(user, masterKey)) {
+            Arrays.fill(masterKey, (byte) 0);
+            throw new VaultAccessException(HttpStatus.UNAUTHORIZED, "Invalid master password");
+        }
+        return masterKey;
+    }
+}
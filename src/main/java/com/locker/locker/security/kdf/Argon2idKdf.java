@@ -0,0 +1,48 @@
+package com.locker.locker.security.kdf;
+
+import com.locker.locker.model.KdfSpec;
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+
+import java.util.Map;
+
+public class Argon2idKdf implements KeyDerivationFunction {
+
+    @Override
+    public String algorithm() {
+        return KdfSpec.ARGON2ID;
+    }
+
+    // 19 MiB, 2 passes, 1 lane is the OWASP minimum for Argon2id
+    @Override
+    public Map<String, Integer> defaultParams() {
+        return Map.of("memoryKib", 19456, "iterations", 2, "parallelism", 1);
+    }
+
+    // Memory stays fixed so calibration only trades passes for latency
+    @Override
+    public String costParam() {
+        return "iterations";
+    }
+
+    @Override
+    public int roundCost(double cost) {
+        return (int) Math.min(Math.floor(cost), 64);
+    }
+
+    @Override
+    public byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int keyLength) {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                .withSalt(salt)
+                .withMemoryAsKB(params.get("memoryKib"))
+                .withIterations(params.get("iterations"))
+                .withParallelism(params.get("parallelism"))
+                .build();
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+        byte[] key = new byte[keyLength];
+        generator.generateBytes(password, key);
+        return key;
+    }
+}
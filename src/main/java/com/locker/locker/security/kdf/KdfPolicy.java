@@ -0,0 +1,91 @@
+package com.locker.locker.security.kdf;
+
+import com.locker.locker.model.KdfSpec;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Decides which KDF and cost new master hashes use. Unless a cost is pinned, the cost parameter of
+// the configured algorithm is scaled on startup until one derivation takes about the target latency
+// on this hardware, never dropping below the algorithm's defaults.
+@Component
+public class KdfPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(KdfPolicy.class);
+
+    private static final int CALIBRATION_RUNS = 3;
+
+    @Value("${vault.kdf.algorithm:" + KdfSpec.PBKDF2 + "}")
+    private String algorithm;
+
+    @Value("${vault.kdf.target-millis:250}")
+    private long targetMillis;
+
+    // Fixed value for the algorithm's cost parameter; 0 calibrates against the target latency instead
+    @Value("${vault.kdf.cost:0}")
+    private int cost;
+
+    private volatile KdfSpec current;
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        KeyDerivationFunction kdf = Kdfs.get(algorithm);
+        current = cost > 0 ? withCost(kdf, cost) : calibrate(kdf);
+        log.info("Master password KDF: {} {}", current.getAlgorithm(), current.getParams());
+    }
+
+    public KdfSpec current() {
+        return current;
+    }
+
+    // A hash is outdated when it uses another algorithm or any parameter weaker than the current policy.
+    // Stronger hashes are left alone, so lowering the target only affects hashes created afterwards.
+    public boolean isOutdated(KdfSpec spec) {
+        KdfSpec effective = spec != null ? spec : KdfSpec.legacy();
+        KdfSpec target = current;
+        if (!target.getAlgorithm().equals(effective.getAlgorithm())) {
+            return true;
+        }
+        return target.getParams().entrySet().stream()
+                .anyMatch(param -> effective.getParams().getOrDefault(param.getKey(), 0) < param.getValue());
+    }
+
+    private KdfSpec calibrate(KeyDerivationFunction kdf) throws GeneralSecurityException {
+        int baseCost = kdf.defaultParams().get(kdf.costParam());
+
+        double millis = medianMillis(kdf, kdf.defaultParams());
+        int calibrated = Math.max(baseCost, kdf.roundCost(baseCost * targetMillis / Math.max(millis, 0.001)));
+
+        log.info("Calibrated {}: {}={} took {} ms, using {}={} for a {} ms target",
+                kdf.algorithm(), kdf.costParam(), baseCost, String.format("%.1f", millis), kdf.costParam(), calibrated, targetMillis);
+        return withCost(kdf, calibrated);
+    }
+
+    private static KdfSpec withCost(KeyDerivationFunction kdf, int cost) {
+        Map<String, Integer> params = new HashMap<>(kdf.defaultParams());
+        params.put(kdf.costParam(), cost);
+        return new KdfSpec(kdf.algorithm(), Map.copyOf(params));
+    }
+
+    private static double medianMillis(KeyDerivationFunction kdf, Map<String, Integer> params) throws GeneralSecurityException {
+        char[] password = "calibration-password".toCharArray();
+        byte[] salt = new byte[16];
+        kdf.derive(password, salt, params, 32); // warm-up
+
+        long[] samples = new long[CALIBRATION_RUNS];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            kdf.derive(password, salt, params, 32);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.locker.locker.security.kdf;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Registry of the supported key derivation functions, looked up by the algorithm stored on each user
+public final class Kdfs {
+
+    private static final Map<String, KeyDerivationFunction> BY_ALGORITHM = List.of(
+                    new Pbkdf2Kdf(), new ScryptKdf(), new Argon2idKdf())
+            .stream()
+            .collect(Collectors.toUnmodifiableMap(KeyDerivationFunction::algorithm, Function.identity()));
+
+    private Kdfs() {
+    }
+
+    public static KeyDerivationFunction get(String algorithm) {
+        KeyDerivationFunction kdf = BY_ALGORITHM.get(algorithm);
+        if (kdf == null) {
+            throw new IllegalArgumentException("Unsupported KDF: " + algorithm);
+        }
+        return kdf;
+    }
+}
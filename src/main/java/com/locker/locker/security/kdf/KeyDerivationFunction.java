@@ -0,0 +1,21 @@
+package com.locker.locker.security.kdf;
+
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+// A password-based key derivation function with a single tunable cost parameter
+public interface KeyDerivationFunction {
+
+    String algorithm();
+
+    // Parameters new hashes start from; calibration never goes below them
+    Map<String, Integer> defaultParams();
+
+    // Name of the parameter calibration scales to reach the target latency
+    String costParam();
+
+    // Snap a scaled cost to a value the algorithm accepts
+    int roundCost(double cost);
+
+    byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int keyLength) throws GeneralSecurityException;
+}
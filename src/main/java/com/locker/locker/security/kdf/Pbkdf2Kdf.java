@@ -0,0 +1,42 @@
+package com.locker.locker.security.kdf;
+
+import com.locker.locker.model.KdfSpec;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+public class Pbkdf2Kdf implements KeyDerivationFunction {
+
+    @Override
+    public String algorithm() {
+        return KdfSpec.PBKDF2;
+    }
+
+    @Override
+    public Map<String, Integer> defaultParams() {
+        return Map.of("iterations", 65536);
+    }
+
+    @Override
+    public String costParam() {
+        return "iterations";
+    }
+
+    // Powers of two keep calibration from drifting between restarts on the same hardware
+    @Override
+    public int roundCost(double cost) {
+        return Integer.highestOneBit((int) Math.min(cost, 1 << 30));
+    }
+
+    @Override
+    public byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int keyLength) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, params.get("iterations"), keyLength * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
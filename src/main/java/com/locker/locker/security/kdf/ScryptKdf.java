@@ -0,0 +1,43 @@
+package com.locker.locker.security.kdf;
+
+import com.locker.locker.model.KdfSpec;
+import org.bouncycastle.crypto.PBEParametersGenerator;
+import org.bouncycastle.crypto.generators.SCrypt;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class ScryptKdf implements KeyDerivationFunction {
+
+    @Override
+    public String algorithm() {
+        return KdfSpec.SCRYPT;
+    }
+
+    // N = 2^15, r = 8 uses 32 MiB per derivation
+    @Override
+    public Map<String, Integer> defaultParams() {
+        return Map.of("n", 32768, "r", 8, "p", 1);
+    }
+
+    @Override
+    public String costParam() {
+        return "n";
+    }
+
+    // scrypt requires N to be a power of two
+    @Override
+    public int roundCost(double cost) {
+        return Integer.highestOneBit((int) Math.min(cost, 1 << 24));
+    }
+
+    @Override
+    public byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int keyLength) {
+        byte[] passwordBytes = PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password);
+        try {
+            return SCrypt.generate(passwordBytes, salt, params.get("n"), params.get("r"), params.get("p"), keyLength);
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
+        }
+    }
+}
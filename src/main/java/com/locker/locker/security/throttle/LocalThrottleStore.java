@@ -0,0 +1,55 @@
+package com.locker.locker.security.throttle;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.InstantSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Buckets in this node's memory, one AtomicLong each, updated with a CAS loop so concurrent
+// attempts never block. A bucket idle for a whole burst window is full again, so evicting it
+// after that loses nothing as long as idle-ttl is at least the longest window (capacity divided
+// by refill rate); the entry cap bounds memory under floods of distinct keys.
+@Component
+@ConditionalOnProperty(name = "vault.login-throttle.store", havingValue = "local", matchIfMissing = true)
+public class LocalThrottleStore implements ThrottleStore {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    private final InstantSource clock;
+
+    @Autowired
+    public LocalThrottleStore(@Value("${vault.login-throttle.max-keys:100000}") long maxKeys,
+                              @Value("${vault.login-throttle.idle-ttl:600000}") long idleTtlMillis) { // 10 minutes in milliseconds
+        this(maxKeys, idleTtlMillis, InstantSource.system());
+    }
+
+    LocalThrottleStore(long maxKeys, long idleTtlMillis, InstantSource clock) {
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public long tryAcquire(String key, long intervalMillis, long burstMillis) {
+        AtomicLong arrival = buckets.get(key, k -> new AtomicLong());
+        long now = clock.millis();
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + intervalMillis;
+            if (next - now > burstMillis) {
+                return next - now - burstMillis;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.locker.locker.security.throttle;
+
+import com.locker.locker.security.LoginThrottledException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// Limits login attempts per client address and per username before any password hashing happens,
+// so a credential-stuffing burst costs a bucket lookup instead of a KDF run. Each limit is a
+// token bucket of `capacity` attempts refilled at `refill-per-minute`.
+@Component
+public class LoginThrottle {
+
+    @Autowired
+    private ThrottleStore throttleStore;
+
+    @Value("${vault.login-throttle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vault.login-throttle.user.capacity:5}")
+    private int userCapacity;
+
+    @Value("${vault.login-throttle.user.refill-per-minute:5}")
+    private int userRefillPerMinute;
+
+    @Value("${vault.login-throttle.ip.capacity:30}")
+    private int ipCapacity;
+
+    @Value("${vault.login-throttle.ip.refill-per-minute:60}")
+    private int ipRefillPerMinute;
+
+    public void check(String username, String clientAddress) throws LoginThrottledException {
+        if (!enabled) {
+            return;
+        }
+        // The address bucket goes first so that spraying many usernames from one client is still capped
+        if (clientAddress != null) {
+            acquire("ip:" + clientAddress, ipCapacity, ipRefillPerMinute);
+        }
+        if (username != null) {
+            acquire("user:" + username.toLowerCase(Locale.ROOT), userCapacity, userRefillPerMinute);
+        }
+    }
+
+    private void acquire(String key, int capacity, int refillPerMinute) throws LoginThrottledException {
+        long intervalMillis = 60_000L / Math.max(1, refillPerMinute);
+        long waitMillis = throttleStore.tryAcquire(key, intervalMillis, intervalMillis * capacity);
+        if (waitMillis > 0) {
+            throw new LoginThrottledException((waitMillis + 999) / 1000);
+        }
+    }
+}
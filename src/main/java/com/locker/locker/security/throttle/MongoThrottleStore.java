@@ -0,0 +1,73 @@
+package com.locker.locker.security.throttle;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.lte;
+
+// Buckets shared by every node through one Mongo document per key. Taking a token is a single
+// conditional upsert: it only matches while the bucket has room, and the arrival time is advanced
+// server-side with a pipeline update, so concurrent nodes cannot overdraw a bucket. Documents
+// expire through a TTL index once their bucket is full again.
+@Component
+@ConditionalOnProperty(name = "vault.login-throttle.store", havingValue = "mongo")
+public class MongoThrottleStore implements ThrottleStore {
+
+    private static final String COLLECTION = "login_throttle";
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private MongoCollection<Document> buckets;
+
+    @PostConstruct
+    public void init() {
+        buckets = mongoTemplate.getCollection(COLLECTION);
+        buckets.createIndex(Indexes.ascending("expireAt"),
+                new IndexOptions().name("expire_ttl").expireAfter(0L, TimeUnit.SECONDS));
+    }
+
+    @Override
+    public long tryAcquire(String key, long intervalMillis, long burstMillis) {
+        while (true) {
+            long now = System.currentTimeMillis();
+            // next = max(arrival, now) + interval; the bucket has room while next - now <= burst
+            Document next = new Document("$add", List.of(new Document("$max", List.of("$arrival", now)), intervalMillis));
+            List<Document> update = List.of(new Document("$set", new Document("arrival", next)),
+                    new Document("$set", new Document("expireAt", new Document("$toDate", "$arrival"))));
+            try {
+                buckets.findOneAndUpdate(and(eq("_id", key), lte("arrival", now + burstMillis - intervalMillis)), update,
+                        new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+                return 0;
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            // The filter missed an existing bucket: usually it is full, but another node may just have created it
+            Document bucket = buckets.find(eq("_id", key)).first();
+            long arrival = bucket != null ? bucket.getLong("arrival") : 0;
+            long waitMillis = Math.max(arrival, now) + intervalMillis - now - burstMillis;
+            if (waitMillis > 0) {
+                return waitMillis;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.locker.locker.security.throttle;
+
+// Holds the token buckets behind LoginThrottle. Buckets follow GCRA: a bucket is a single
+// "theoretical arrival time" that each accepted attempt pushes intervalMillis further out,
+// and an attempt is accepted while that time stays within burstMillis of now.
+public interface ThrottleStore {
+
+    // Take one token from the key's bucket; returns 0 when taken, otherwise the milliseconds until one is available
+    long tryAcquire(String key, long intervalMillis, long burstMillis);
+}
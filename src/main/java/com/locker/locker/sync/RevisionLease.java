@@ -0,0 +1,42 @@
+package com.locker.locker.sync;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+// A block of freshly allocated revisions; the write using them must finish before the lease is closed.
+// May be closed from another thread than the one that acquired it.
+public final class RevisionLease implements AutoCloseable {
+
+    private final VaultRevisions owner;
+    private final String userId;
+    private final long first;
+    private final int count;
+    private final StampedLock lock;
+    private final long stamp;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    RevisionLease(VaultRevisions owner, String userId, long first, int count, StampedLock lock, long stamp) {
+        this.owner = owner;
+        this.userId = userId;
+        this.first = first;
+        this.count = count;
+        this.lock = lock;
+        this.stamp = stamp;
+    }
+
+    public long first() {
+        return first;
+    }
+
+    public long last() {
+        return first + count - 1;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            lock.unlockRead(stamp);
+            owner.advance(userId, last());
+        }
+    }
+}
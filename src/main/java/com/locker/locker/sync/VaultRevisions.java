@@ -0,0 +1,92 @@
+package com.locker.locker.sync;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.locker.locker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+// Allocates per-user revisions with an atomic increment on the user record. Writers hold their user's
+// stripe shared until the revision is stored; sync readers take it exclusively just long enough to
+// read the current revision, so everything at or below that value is guaranteed to be visible.
+// Completed revisions are also cached per user, so conditional GETs are answered from memory. Writes
+// made elsewhere (another node, the database directly) are only seen once the cached value is reloaded,
+// so it expires a fixed time after it was written however often it is read.
+@Component
+public class VaultRevisions {
+
+    private static final int STRIPES = 256;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final StampedLock[] locks = new StampedLock[STRIPES];
+
+    private final Cache<String, Long> completed;
+
+    public VaultRevisions(@Value("${vault.revisions.max-cached-users:100000}") long maxCachedUsers,
+                          @Value("${vault.revisions.max-age:30000}") long maxAgeMillis) { // 30 seconds in milliseconds
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxCachedUsers)
+                .expireAfterWrite(maxAgeMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public RevisionLease lease(String userId, int count) {
+        StampedLock lock = lockFor(userId);
+        long stamp = lock.readLock();
+        try {
+            Long revision = userRepository.incrementRevision(userId, count);
+            if (revision == null) {
+                throw new IllegalStateException("User " + userId + " not found");
+            }
+            return new RevisionLease(this, userId, revision - count + 1, count, lock, stamp);
+        } catch (RuntimeException e) {
+            lock.unlockRead(stamp);
+            throw e;
+        }
+    }
+
+    // Highest revision whose write has completed, read from storage
+    public long stableRevision(String userId) {
+        long revision = loadRevision(userId);
+        advance(userId, revision);
+        return revision;
+    }
+
+    // Same as stableRevision, but served from memory once the user has been seen
+    public long currentRevision(String userId) {
+        return completed.get(userId, this::loadRevision);
+    }
+
+    // Strong validator for list and search responses; the user id keeps tags from different accounts apart
+    public String etag(String userId) {
+        return "\"" + userId + "." + currentRevision(userId) + "\"";
+    }
+
+    // Called without the stripe held, so a concurrent cache load waiting for the write lock cannot deadlock
+    void advance(String userId, long revision) {
+        completed.asMap().computeIfPresent(userId, (id, cached) -> Math.max(cached, revision));
+    }
+
+    private long loadRevision(String userId) {
+        StampedLock lock = lockFor(userId);
+        long stamp = lock.writeLock();
+        try {
+            return userRepository.findRevision(userId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private StampedLock lockFor(String userId) {
+        return locks[Math.floorMod(userId.hashCode(), STRIPES)];
+    }
+}
@@ -0,0 +1,91 @@
+package com.locker.locker.sync;
+
+import com.locker.locker.dto.PasswordEntryResponse;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.dto.SyncToken;
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.repository.PasswordTombstoneRepository;
+import com.locker.locker.security.VaultAccessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Answers "what changed since this token" from entry revisions and delete tombstones
+@Component
+public class VaultSyncService {
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Autowired
+    private PasswordTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private VaultRevisions vaultRevisions;
+
+    @Value("${vault.sync.token-max-age:2592000000}") // 30 days in milliseconds
+    private long tokenMaxAgeMillis;
+
+    // Without a token the whole vault is returned as the starting point of a replica
+    public Map<String, Object> changes(String userId, String token, int limit) throws VaultAccessException {
+        long now = System.currentTimeMillis();
+        long upTo = vaultRevisions.stableRevision(userId);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (token == null) {
+            try (Stream<PasswordEntrySummary> summaries = passwordRepository.streamSummaries(userId)) {
+                response.put("changes", summaries.map(PasswordEntryResponse::summary).toList());
+            }
+            response.put("deleted", List.of());
+            response.put("token", new SyncToken(upTo, now).encode());
+            response.put("hasMore", false);
+            return response;
+        }
+
+        SyncToken since = SyncToken.decode(token);
+        // Tombstones older than the token may already be compacted, and a future revision means the vault was restored
+        if (now - since.getIssuedAt() > tokenMaxAgeMillis || since.getRevision() > upTo) {
+            throw new VaultAccessException(HttpStatus.GONE, "Sync token expired, reload the full vault");
+        }
+
+        List<PasswordEntrySummary> changed =
+                passwordRepository.findSummariesChangedBetween(userId, since.getRevision(), upTo, limit + 1);
+        List<PasswordTombstone> deleted = tombstoneRepository.findChanges(userId, since.getRevision(), upTo,
+                PageRequest.of(0, limit + 1, Sort.by("revision")));
+
+        // Merge both revision-ordered lists and cut at the limit; the token then points at the last item sent
+        List<Map<String, Object>> changes = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        long revision = since.getRevision();
+        int c = 0;
+        int d = 0;
+        while (changes.size() + deletedIds.size() < limit && (c < changed.size() || d < deleted.size())) {
+            if (d >= deleted.size() || (c < changed.size() && changed.get(c).getRevision() < deleted.get(d).getRevision())) {
+                PasswordEntrySummary entry = changed.get(c++);
+                changes.add(PasswordEntryResponse.summary(entry));
+                revision = entry.getRevision();
+            } else {
+                PasswordTombstone tombstone = deleted.get(d++);
+                deletedIds.add(tombstone.getEntryId());
+                revision = tombstone.getRevision();
+            }
+        }
+        boolean hasMore = c < changed.size() || d < deleted.size();
+
+        response.put("changes", changes);
+        response.put("deleted", deletedIds);
+        response.put("token", new SyncToken(hasMore ? revision : upTo, now).encode());
+        response.put("hasMore", hasMore);
+        return response;
+    }
+}
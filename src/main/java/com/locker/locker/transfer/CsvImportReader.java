@@ -0,0 +1,144 @@
+package com.locker.locker.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// RFC 4180 CSV with a header row; quoted fields may contain separators, quotes and line breaks
+public class CsvImportReader implements ImportRowReader {
+
+    private static final int MAX_FIELD_LENGTH = 64 * 1024;
+    private static final int MAX_FIELDS = 256; // Far more columns than any password manager exports
+
+    private final BufferedReader reader;
+    private List<String> header;
+    private long rowNumber;
+    private boolean eof;
+
+    public CsvImportReader(InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ImportRow next() throws IOException, ImportRowException {
+        if (header == null) {
+            List<String> columns = readRecord();
+            if (columns == null) {
+                return null;
+            }
+            header = new ArrayList<>(columns.size());
+            // Spreadsheet exports often start with a byte order mark
+            for (String column : columns) {
+                header.add(ImportRow.normalizeColumn(column.replace("\uFEFF", "")));
+            }
+        }
+
+        List<String> values;
+        do {
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+            rowNumber++;
+        } while (values.size() == 1 && values.get(0).isEmpty()); // blank line
+
+        if (values.size() > header.size()) {
+            throw new ImportRowException("Expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.putIfAbsent(header.get(i), values.get(i));
+        }
+        return ImportRow.of(rowNumber, fields);
+    }
+
+    // One record, or null at the end of the input; an oversized field or too many fields skip the rest of
+    // the record, which is still read to its end but not kept
+    private List<String> readRecord() throws IOException, ImportRowException {
+        if (eof) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean tooLong = false;
+        boolean tooMany = false;
+        int c = reader.read();
+        if (c == -1) {
+            eof = true;
+            return null;
+        }
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    eof = true;
+                    throw new ImportRowException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                tooMany |= !addField(fields, field);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (c == -1) {
+                    eof = true;
+                }
+                tooMany |= !addField(fields, field);
+                if (tooLong) {
+                    throw new ImportRowException("Field longer than " + MAX_FIELD_LENGTH + " characters");
+                }
+                if (tooMany) {
+                    throw new ImportRowException("Record has more than " + MAX_FIELDS + " fields");
+                }
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            if (field.length() > MAX_FIELD_LENGTH) {
+                tooLong = true;
+                field.setLength(0);
+            }
+            c = reader.read();
+        }
+    }
+
+    // Moves the field into the record unless it already has MAX_FIELDS; false when it was dropped
+    private static boolean addField(List<String> fields, StringBuilder field) {
+        boolean added = fields.size() < MAX_FIELDS;
+        if (added) {
+            fields.add(field.toString());
+        }
+        field.setLength(0);
+        return added;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
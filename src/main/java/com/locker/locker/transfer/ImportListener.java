@@ -0,0 +1,12 @@
+package com.locker.locker.transfer;
+
+import java.io.IOException;
+
+// Receives import progress as it happens, e.g. to stream it back to the client
+public interface ImportListener {
+
+    void onRowError(long rowNumber, String message) throws IOException;
+
+    // Called after each batch has been handed to the database; imported counts confirmed inserts only
+    void onProgress(long processed, long imported, long failed) throws IOException;
+}
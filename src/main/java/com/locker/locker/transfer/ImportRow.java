@@ -0,0 +1,58 @@
+package com.locker.locker.transfer;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// One entry read from an import file, with column names from common password manager exports accepted
+@Data
+public class ImportRow {
+    private static final List<String> WEBSITE_COLUMNS = List.of("website", "url", "login_uri", "name");
+    private static final List<String> USERNAME_COLUMNS = List.of("username", "login_username", "login");
+    private static final List<String> PASSWORD_COLUMNS = List.of("password", "login_password");
+    private static final List<String> NOTES_COLUMNS = List.of("notes", "note", "extra");
+
+    private long rowNumber;
+    private String website;
+    private String username;
+    private String password;
+    private String notes;
+
+    // Keys must already be lower case
+    public static ImportRow of(long rowNumber, Map<String, String> fields) {
+        ImportRow row = new ImportRow();
+        row.setRowNumber(rowNumber);
+        row.setWebsite(first(fields, WEBSITE_COLUMNS));
+        row.setUsername(first(fields, USERNAME_COLUMNS));
+        row.setPassword(first(fields, PASSWORD_COLUMNS));
+        row.setNotes(first(fields, NOTES_COLUMNS));
+        return row;
+    }
+
+    // Reason the row cannot be imported, or null when it is valid
+    public String problem() {
+        if (website == null || website.isBlank()) {
+            return "Missing website";
+        }
+        if (password == null || password.isEmpty()) {
+            return "Missing password";
+        }
+        return null;
+    }
+
+    static String normalizeColumn(String column) {
+        return column.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String first(Map<String, String> fields, List<String> columns) {
+        for (String column : columns) {
+            String value = fields.get(column);
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
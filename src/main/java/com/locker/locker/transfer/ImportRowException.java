@@ -0,0 +1,8 @@
+package com.locker.locker.transfer;
+
+// A single malformed row; the reader is positioned at the next row and can keep going
+public class ImportRowException extends Exception {
+    public ImportRowException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.locker.locker.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Reads import rows one at a time so files of any size are processed in constant memory
+public interface ImportRowReader extends Closeable {
+
+    // The next row, or null at the end of the input
+    ImportRow next() throws IOException, ImportRowException;
+}
@@ -0,0 +1,58 @@
+package com.locker.locker.transfer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+// A top-level JSON array of objects, parsed one element at a time
+public class JsonImportReader implements ImportRowReader {
+
+    private final JsonParser parser;
+    private long rowNumber;
+    private boolean started;
+
+    public JsonImportReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.parser = objectMapper.getFactory().createParser(inputStream);
+    }
+
+    @Override
+    public ImportRow next() throws IOException, ImportRowException {
+        if (!started) {
+            started = true;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of entries");
+            }
+        }
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        rowNumber++;
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            throw new ImportRowException("Expected an object");
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = ImportRow.normalizeColumn(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                fields.putIfAbsent(name, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return ImportRow.of(rowNumber, fields);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.locker.locker.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.security.CryptoUtils;
+import com.locker.locker.security.VaultKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Writes a user's vault straight from the Mongo cursor to the response, one row at a time.
+// Without a key the rows carry the ciphertext, IV and key version instead of the password.
+@Component
+public class VaultExporter {
+
+    private static final List<String> DECRYPTED_COLUMNS =
+            List.of("website", "username", "password", "notes", "createdAt", "updatedAt");
+    private static final List<String> ENCRYPTED_COLUMNS =
+            List.of("id", "website", "username", "encryptedPassword", "iv", "keyVersion", "notes", "createdAt", "updatedAt");
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void exportJson(String userId, VaultKey key, OutputStream outputStream) throws Exception {
+        try (Stream<PasswordEntry> entries = passwordRepository.streamEntries(userId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // Let the generator buffer instead of flushing the response after every row
+            ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            generator.writeStartArray();
+            for (Iterator<PasswordEntry> it = entries.iterator(); it.hasNext(); ) {
+                rowWriter.writeValue(generator, row(it.next(), key));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public void exportCsv(String userId, VaultKey key, OutputStream outputStream) throws Exception {
+        List<String> columns = key != null ? DECRYPTED_COLUMNS : ENCRYPTED_COLUMNS;
+        try (Stream<PasswordEntry> entries = passwordRepository.streamEntries(userId);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            writeCsvLine(writer, columns);
+            for (Iterator<PasswordEntry> it = entries.iterator(); it.hasNext(); ) {
+                Map<String, Object> row = row(it.next(), key);
+                writeCsvLine(writer, columns.stream().map(column -> row.get(column)).toList());
+            }
+        }
+    }
+
+    private static Map<String, Object> row(PasswordEntry entry, VaultKey key) throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        if (key == null) {
+            row.put("id", entry.getId());
+        }
+        row.put("website", entry.getWebsite());
+        row.put("username", entry.getUsername());
+        if (key != null) {
+            row.put("password", key.decrypt(entry));
+        } else if (entry.getSecret() != null) {
+            // Exports keep the Base64 fields whichever format the entry is stored in
+            row.put("encryptedPassword", CryptoUtils.sealedCiphertext(entry.getSecret()));
+            row.put("iv", CryptoUtils.sealedIv(entry.getSecret()));
+            row.put("keyVersion", entry.getKeyVersion());
+        } else {
+            row.put("encryptedPassword", entry.getEncryptedPassword());
+            row.put("iv", entry.getIv());
+            row.put("keyVersion", entry.getKeyVersion());
+        }
+        row.put("notes", entry.getNotes());
+        row.put("createdAt", entry.getCreatedAt());
+        row.put("updatedAt", entry.getUpdatedAt());
+        return row;
+    }
+
+    private static void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(csvField(value.toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvField(String value) {
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
@@ -0,0 +1,151 @@
+package com.locker.locker.transfer;
+
+import com.locker.locker.metrics.VaultMetrics;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.search.VaultSearchIndex;
+import com.locker.locker.security.VaultKey;
+import com.locker.locker.sync.RevisionLease;
+import com.locker.locker.sync.VaultRevisions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Imports rows in fixed-size batches: each batch is encrypted in parallel and written with one
+// insertMany while the next batch is read and encrypted, so memory stays at about two batches.
+@Component
+public class VaultImporter {
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Autowired
+    private VaultSearchIndex vaultSearchIndex;
+
+    @Autowired
+    private VaultRevisions vaultRevisions;
+
+    @Value("${vault.import.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final ExecutorService inserts = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "vault-import-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImportResult importRows(String userId, VaultKey key, ImportRowReader reader, ImportListener listener) throws Exception {
+        long processed = 0;
+        long failed = 0;
+        long imported = 0;
+        CompletableFuture<Integer> pendingInsert = CompletableFuture.completedFuture(0);
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (true) {
+                ImportRow row;
+                try {
+                    row = reader.next();
+                } catch (ImportRowException e) {
+                    processed++;
+                    failed++;
+                    listener.onRowError(processed, e.getMessage());
+                    continue;
+                }
+
+                if (row != null) {
+                    processed++;
+                    String problem = row.problem();
+                    if (problem != null) {
+                        failed++;
+                        listener.onRowError(row.getRowNumber(), problem);
+                    } else {
+                        batch.add(row);
+                    }
+                }
+
+                if (batch.size() >= batchSize || (row == null && !batch.isEmpty())) {
+                    List<PasswordEntry> entries = encrypt(userId, key, batch);
+                    imported += await(pendingInsert);
+                    // Each batch gets a block of revisions, held until its insert has finished
+                    RevisionLease revisions = vaultRevisions.lease(userId, entries.size());
+                    for (int i = 0; i < entries.size(); i++) {
+                        entries.get(i).setRevision(revisions.first() + i);
+                    }
+                    try {
+                        pendingInsert = CompletableFuture.supplyAsync(() -> {
+                            try (revisions) {
+                                return passwordRepository.insert(entries).size();
+                            }
+                        }, task -> inserts.execute(VaultMetrics.propagate(task)));
+                    } catch (RuntimeException e) {
+                        // Never scheduled (e.g. rejected during shutdown), so the task cannot release the stripe
+                        revisions.close();
+                        throw e;
+                    }
+                    batch = new ArrayList<>(batchSize);
+                    listener.onProgress(processed, imported, failed);
+                }
+                if (row == null) {
+                    break;
+                }
+            }
+            imported += await(pendingInsert);
+        } finally {
+            // Also after a failure, earlier batches are already stored
+            vaultSearchIndex.invalidate(userId);
+        }
+        return new ImportResult(processed, imported, failed);
+    }
+
+    private static List<PasswordEntry> encrypt(String userId, VaultKey key, List<ImportRow> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        return rows.parallelStream()
+                .map(VaultMetrics.propagate((ImportRow row) -> {
+                    PasswordEntry entry = new PasswordEntry();
+                    entry.setUserId(userId);
+                    entry.setWebsite(row.getWebsite());
+                    // Exports often leave the username out; stored empty, like an entry saved without one
+                    entry.setUsername(row.getUsername() != null ? row.getUsername() : "");
+                    entry.setNotes(row.getNotes());
+                    entry.setCreatedAt(now);
+                    entry.setUpdatedAt(now);
+                    try {
+                        key.encrypt(entry, row.getPassword());
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Could not encrypt row " + row.getRowNumber(), e);
+                    }
+                    return entry;
+                }))
+                .toList();
+    }
+
+    private static int await(CompletableFuture<Integer> insert) throws IOException {
+        try {
+            return insert.join();
+        } catch (CompletionException e) {
+            throw new IOException("Writing imported entries failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        inserts.shutdownNow();
+    }
+
+    public record ImportResult(long processed, long imported, long failed) {
+    }
+}
@@ -3,7 +3,8 @@ package com.locker.locker;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// No Mongo server is available to the test context, so startup index verification and data key migration are skipped
+@SpringBootTest(properties = {"vault.mongo.ensure-indexes=false", "vault.data-key-migration.enabled=false"})
 class LockerApplicationTests {
 
 	@Test
@@ -0,0 +1,174 @@
+package com.locker.locker.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditLogTest {
+
+    // An event below is 38 bytes with its header, so 13 fit in a segment
+    private static final int SEGMENT_SIZE = 512;
+    private static final int RECORD_LENGTH = 38;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recentReturnsFlushedEventsOfTheUserNewestFirst() throws IOException {
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            for (int i = 0; i < 6; i++) {
+                log.append(event(i, i % 2 == 0 ? "alice" : "bob__"));
+            }
+            assertThat(log.recent("alice", null, null, 10).items()).isEmpty();
+            log.flush();
+
+            assertThat(log.recent("alice", null, null, 10).items()).extracting(AuditEvent::entryId)
+                    .containsExactly("entry-04", "entry-02", "entry-00");
+            assertThat(log.recent("alice", Instant.ofEpochMilli(4), null, 1).items()).extracting(AuditEvent::entryId)
+                    .containsExactly("entry-02");
+            assertThat(log.recent("carol", null, null, 10).items()).isEmpty();
+            assertThat(log.recent("bob__", null, null, 10).items().get(0)).isEqualTo(event(5, "bob__"));
+        }
+    }
+
+    @Test
+    void truncatedRecordIsDroppedAndAppendedOverAfterReopening() throws IOException {
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(event(i, "alice"));
+            }
+        }
+        // The last record lost the end of its payload in a crash
+        Path segment = directory.resolve("00000001.audit");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(5L * RECORD_LENGTH - 10);
+        }
+
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            assertThat(entryIds(log)).containsExactly("entry-03", "entry-02", "entry-01", "entry-00");
+            log.append(event(9, "alice"));
+        }
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            assertThat(entryIds(log)).containsExactly("entry-09", "entry-03", "entry-02", "entry-01", "entry-00");
+        }
+    }
+
+    @Test
+    void remainsOfATornRecordAreClearedBeforeAppending() throws IOException {
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            log.append(event(0, "alice"));
+        }
+        // The end of a longer record's payload was written but not its length, which goes last
+        try (FileChannel channel = FileChannel.open(directory.resolve("00000001.audit"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), 2L * RECORD_LENGTH + 10);
+        }
+
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            log.append(event(1, "alice"));
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("00000001.audit"), StandardOpenOption.READ)) {
+            ByteBuffer tail = ByteBuffer.allocate(SEGMENT_SIZE - 2 * RECORD_LENGTH);
+            channel.read(tail, 2L * RECORD_LENGTH);
+            assertThat(tail.flip().mismatch(ByteBuffer.allocate(tail.remaining()))).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void rotationKeepsTheNewestSegmentsAcrossReopening() throws IOException {
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 3)) {
+            for (int i = 0; i < 60; i++) {
+                log.append(event(i, "alice"));
+            }
+        }
+        // 60 events fill segments 1 to 5; only 3 to 5 are kept
+        assertThat(segmentNames()).containsExactly("00000003.audit", "00000004.audit", "00000005.audit");
+
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 3)) {
+            List<AuditEvent> kept = log.recent("alice", null, null, 100).items();
+            assertThat(kept).hasSize(60 - 2 * 13);
+            assertThat(kept.get(0).entryId()).isEqualTo("entry-59");
+            assertThat(kept.get(kept.size() - 1).entryId()).isEqualTo("entry-26");
+
+            // Appends continue in the newest segment, then rotate on past it
+            for (int i = 60; i < 80; i++) {
+                log.append(event(i, "alice"));
+            }
+        }
+        assertThat(segmentNames()).containsExactly("00000005.audit", "00000006.audit", "00000007.audit");
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 3)) {
+            List<AuditEvent> kept = log.recent("alice", null, null, 100).items();
+            assertThat(kept.get(0).entryId()).isEqualTo("entry-79");
+            assertThat(kept.get(kept.size() - 1).entryId()).isEqualTo("entry-52");
+        }
+    }
+
+    @Test
+    void pagesAcrossEventsOfTheSameMillisecondWithoutGapsOrRepeats() throws IOException {
+        try (AuditLog log = new AuditLog(directory, SEGMENT_SIZE, 10)) {
+            // 30 of alice's events in three milliseconds, interleaved with bob's, spread over five segments
+            for (int i = 0; i < 30; i++) {
+                log.append(new AuditEvent(Instant.ofEpochMilli(1000 + i / 10), AuditAction.REVEAL, "alice",
+                        String.format("entry-%02d", i), "s1"));
+                log.append(event(i, "bob__"));
+            }
+            log.flush();
+
+            List<String> paged = new ArrayList<>();
+            List<Integer> pageSizes = new ArrayList<>();
+            AuditCursor cursor = null;
+            do {
+                AuditPage page = log.recent("alice", null, cursor, 4);
+                page.items().forEach(event -> paged.add(event.entryId()));
+                pageSizes.add(page.items().size());
+                cursor = page.nextCursor() != null ? AuditCursor.decode(page.nextCursor()) : null;
+            } while (cursor != null);
+
+            assertThat(paged).containsExactlyElementsOf(
+                    IntStream.iterate(29, i -> i >= 0, i -> i - 1).mapToObj(i -> String.format("entry-%02d", i)).toList());
+            assertThat(pageSizes).containsExactly(4, 4, 4, 4, 4, 4, 4, 2);
+
+            // A cursor combines with a time bound: after entry-25 and before the millisecond of entries 20 to 29
+            AuditCursor afterFirstPage = AuditCursor.decode(log.recent("alice", null, null, 4).nextCursor());
+            assertThat(log.recent("alice", Instant.ofEpochMilli(1002), afterFirstPage, 3).items())
+                    .extracting(AuditEvent::entryId).containsExactly("entry-19", "entry-18", "entry-17");
+        }
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThat(AuditCursor.decode(new AuditCursor(3, 114).encode())).isEqualTo(new AuditCursor(3, 114));
+        for (String cursor : List.of("not base64!", "MTIz", new AuditCursor(0, 5).encode(), new AuditCursor(2, -1).encode())) {
+            assertThatThrownBy(() -> AuditCursor.decode(cursor)).as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+
+    private static AuditEvent event(int i, String userId) {
+        return new AuditEvent(Instant.ofEpochMilli(i), AuditAction.REVEAL, userId, String.format("entry-%02d", i), "s1");
+    }
+
+    private static List<String> entryIds(AuditLog log) {
+        return log.recent("alice", null, null, 100).items().stream().map(AuditEvent::entryId).toList();
+    }
+
+    private List<String> segmentNames() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
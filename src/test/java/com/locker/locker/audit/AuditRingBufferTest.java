@@ -0,0 +1,104 @@
+package com.locker.locker.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditRingBufferTest {
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new AuditRingBuffer(12)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AuditRingBuffer(1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new AuditRingBuffer(16).capacity()).isEqualTo(16);
+    }
+
+    @Test
+    void fullBufferRejectsOffersUntilDrained() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(event(0, i))).isTrue();
+        }
+        assertThat(buffer.offer(event(0, 4))).isFalse();
+
+        List<AuditEvent> drained = new ArrayList<>();
+        assertThat(buffer.drain(drained::add, 3)).isEqualTo(3);
+        assertThat(buffer.offer(event(0, 5))).isTrue();
+        assertThat(buffer.drain(drained::add, 100)).isEqualTo(2);
+        assertThat(buffer.drain(drained::add, 100)).isZero();
+        assertThat(drained).extracting(AuditEvent::entryId).containsExactly("0", "1", "2", "3", "5");
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        AuditRingBuffer buffer = new AuditRingBuffer(64);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                await(start);
+                for (int i = 0; i < perProducer; i++) {
+                    // A small buffer keeps it full, so offers fail and are retried
+                    while (!buffer.offer(event(producer, i))) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        long total = (long) producers * perProducer;
+        int[] next = new int[producers];
+        long[] received = new long[1];
+        List<String> outOfOrder = new ArrayList<>();
+        Thread consumer = Thread.ofPlatform().start(() -> {
+            await(start);
+            long deadline = System.nanoTime() + 30_000_000_000L;
+            while (received[0] < total && System.nanoTime() < deadline) {
+                int count = buffer.drain(event -> {
+                    int producer = Integer.parseInt(event.userId());
+                    if (!event.entryId().equals(Integer.toString(next[producer]))) {
+                        outOfOrder.add(event.userId() + "/" + event.entryId());
+                    }
+                    next[producer]++;
+                    received[0]++;
+                }, 32);
+                if (count == 0) {
+                    Thread.yield();
+                }
+            }
+        });
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        consumer.join();
+
+        assertThat(outOfOrder).isEmpty();
+        assertThat(received[0]).isEqualTo(total);
+        assertThat(next).containsOnly(perProducer);
+        assertThat(buffer.drain(event -> { }, 100)).isZero();
+    }
+
+    private static AuditEvent event(int producer, int sequence) {
+        return new AuditEvent(Instant.EPOCH, AuditAction.REVEAL, Integer.toString(producer), Integer.toString(sequence), null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.locker.locker.breach;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BreachIndexTest {
+
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+
+    // Hashes at the edges of the prefix range and of neighbouring buckets
+    private static final List<String> EDGES = List.of(
+            "0000000000000000000000000000000000000000",
+            "0000000000000000000000000000000000000002",
+            "00FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF",
+            "0100000000000000000000000000000000000000",
+            "8000000000000000000000000000000000000000",
+            "FFFF000000000000000000000000000000000000",
+            "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFE");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsEveryHashOfTheDumpAndNothingElse() throws IOException {
+        TreeSet<byte[]> hashes = new TreeSet<>(Arrays::compareUnsigned);
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            byte[] hash = new byte[BreachIndex.RECORD_LENGTH];
+            random.nextBytes(hash);
+            hashes.add(hash);
+        }
+        EDGES.forEach(edge -> hashes.add(HEX.parseHex(edge)));
+
+        // Repeated lines, as in dumps concatenated from overlapping ranges, are stored once
+        List<String> lines = new ArrayList<>();
+        for (byte[] hash : hashes) {
+            lines.add(HEX.formatHex(hash) + ":" + (1 + random.nextInt(1000)));
+        }
+        lines.add(1, lines.get(0));
+        lines.add(lines.get(lines.size() - 1));
+
+        Path index = build(lines);
+        try (BreachIndex breachIndex = BreachIndex.open(index)) {
+            assertThat(breachIndex.size()).isEqualTo(hashes.size());
+            for (byte[] hash : hashes) {
+                assertThat(breachIndex.contains(hash)).as(HEX.formatHex(hash)).isTrue();
+            }
+
+            for (String miss : List.of(
+                    "0000000000000000000000000000000000000001", // Between two hashes of the first bucket
+                    "0000000000000000000000000000000000000003", // After the last hash of the first bucket
+                    "00FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFE", // Before the last hash of a bucket
+                    "0100000000000000000000000000000000000001", // After the first hash of a bucket
+                    "7FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", // Signed overflow boundary
+                    "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", // After the last hash of the index
+                    "FFFEFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF")) { // Before the first hash of the last bucket
+                byte[] hash = HEX.parseHex(miss);
+                assertThat(hashes.contains(hash)).as(miss).isFalse();
+                assertThat(breachIndex.contains(hash)).as(miss).isFalse();
+            }
+
+            // 20,000 hashes leave most of the 65,536 buckets empty
+            int emptyChecked = 0;
+            for (int prefix = 0; prefix < 1 << BreachIndex.PREFIX_BITS && emptyChecked < 100; prefix++) {
+                byte[] low = bucketBound(prefix, (byte) 0);
+                byte[] high = bucketBound(prefix, (byte) 0xFF);
+                if (hashes.subSet(low, true, high, true).isEmpty()) {
+                    assertThat(breachIndex.contains(low)).isFalse();
+                    assertThat(breachIndex.contains(high)).isFalse();
+                    emptyChecked++;
+                }
+            }
+            assertThat(emptyChecked).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void emptyDumpGivesAnEmptyIndex() throws IOException {
+        try (BreachIndex breachIndex = BreachIndex.open(build(List.of()))) {
+            assertThat(breachIndex.size()).isZero();
+            assertThat(breachIndex.contains(HEX.parseHex(EDGES.get(0)))).isFalse();
+            assertThat(breachIndex.contains(HEX.parseHex(EDGES.get(EDGES.size() - 1)))).isFalse();
+        }
+    }
+
+    @Test
+    void dumpOutOfOrderIsRejected() throws IOException {
+        Path dump = directory.resolve("dump.txt");
+        Files.write(dump, List.of(EDGES.get(0) + ":1", EDGES.get(3) + ":1", EDGES.get(2) + ":1"), StandardCharsets.US_ASCII);
+        Path index = directory.resolve("breach.idx");
+
+        assertThatThrownBy(() -> BreachIndexBuilder.build(dump, index))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Line 3 is out of order");
+        assertThat(index).doesNotExist();
+    }
+
+    @Test
+    void malformedLineIsRejected() throws IOException {
+        Path dump = directory.resolve("dump.txt");
+        Files.write(dump, List.of(EDGES.get(0) + ":1", "not a hash:1"), StandardCharsets.US_ASCII);
+
+        assertThatThrownBy(() -> BreachIndexBuilder.build(dump, directory.resolve("breach.idx")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Line 2 does not start with a SHA-1 hash");
+    }
+
+    @Test
+    void truncatedIndexIsRejected() throws IOException {
+        Path index = build(EDGES.stream().map(edge -> edge + ":1").toList());
+        long size = Files.size(index);
+
+        // Missing the last record
+        truncate(index, size - BreachIndex.RECORD_LENGTH);
+        assertThatThrownBy(() -> BreachIndex.open(index))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("truncated or corrupt");
+
+        // Cut off inside the prefix table
+        truncate(index, BreachIndex.HEADER_LENGTH + 100);
+        assertThatThrownBy(() -> BreachIndex.open(index)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void fileThatIsNotAnIndexIsRejected() throws IOException {
+        Path other = directory.resolve("other.idx");
+        Files.write(other, new byte[1024]);
+        assertThatThrownBy(() -> BreachIndex.open(other))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("is not a breach index");
+    }
+
+    private Path build(List<String> lines) throws IOException {
+        Path dump = directory.resolve("dump.txt");
+        Path index = directory.resolve("breach.idx");
+        Files.write(dump, lines, StandardCharsets.US_ASCII);
+        assertThat(BreachIndexBuilder.build(dump, index)).isEqualTo(lines.stream().distinct().count());
+        return index;
+    }
+
+    private static byte[] bucketBound(int prefix, byte fill) {
+        byte[] hash = new byte[BreachIndex.RECORD_LENGTH];
+        Arrays.fill(hash, fill);
+        hash[0] = (byte) (prefix >>> 8);
+        hash[1] = (byte) prefix;
+        return hash;
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.locker.locker.repository.embedded;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedLogTest {
+
+    // Three 19-byte records of a 10-byte payload fit in a segment
+    private static final int SEGMENT_SIZE = 64;
+    private static final int RECORD_LENGTH = EmbeddedLog.HEADER_LENGTH + 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReplayedInOrderAcrossSegments() throws IOException {
+        try (EmbeddedLog log = open(new ArrayList<>())) {
+            for (int i = 0; i < 10; i++) {
+                log.append((byte) (i % 3), payload(i));
+            }
+        }
+        assertThat(segmentFiles()).hasSize(4);
+
+        List<String> replayed = new ArrayList<>();
+        try (EmbeddedLog log = open(replayed)) {
+            assertThat(log.writtenBytes()).isEqualTo(10L * RECORD_LENGTH);
+        }
+        assertThat(replayed).containsExactlyElementsOf(expected(0, 10));
+    }
+
+    @Test
+    void tornLastRecordIsDroppedAndAppendedOver() throws IOException {
+        try (EmbeddedLog log = open(new ArrayList<>())) {
+            for (int i = 0; i < 5; i++) {
+                log.append((byte) 0, payload(i));
+            }
+        }
+        // The fifth record is the second of segment 2; its payload never fully reached the disk
+        corrupt(directory.resolve("00000002.log"), RECORD_LENGTH + EmbeddedLog.HEADER_LENGTH + 3);
+
+        List<String> replayed = new ArrayList<>();
+        try (EmbeddedLog log = open(replayed)) {
+            log.append((byte) 0, payload(9));
+        }
+        assertThat(replayed).containsExactly("0:payload-00", "0:payload-01", "0:payload-02", "0:payload-03");
+
+        replayed.clear();
+        open(replayed).close();
+        assertThat(replayed).containsExactly("0:payload-00", "0:payload-01", "0:payload-02", "0:payload-03",
+                "0:payload-09");
+    }
+
+    @Test
+    void remainsOfATornRecordAreClearedBeforeAppending() throws IOException {
+        try (EmbeddedLog log = open(new ArrayList<>())) {
+            log.append((byte) 0, payload(0));
+        }
+        // A crash left the body of a longer record without its length, which is written last
+        Path segment = directory.resolve("00000001.log");
+        write(segment, RECORD_LENGTH + 4, "garbage that reads as a record header".getBytes(StandardCharsets.US_ASCII));
+
+        try (EmbeddedLog log = open(new ArrayList<>())) {
+            // Shorter than the remains, then enough to start newer segments behind them
+            log.append((byte) 0, new byte[1]);
+            for (int i = 1; i < 6; i++) {
+                log.append((byte) 0, payload(i));
+            }
+        }
+
+        List<String> replayed = new ArrayList<>();
+        open(replayed).close();
+        assertThat(replayed).hasSize(7);
+        assertThat(corruptFiles()).isEmpty();
+    }
+
+    @Test
+    void badRecordInAnOlderSegmentTruncatesTheLogThere() throws IOException {
+        try (EmbeddedLog log = open(new ArrayList<>())) {
+            for (int i = 0; i < 9; i++) {
+                log.append((byte) 0, payload(i));
+            }
+        }
+        corrupt(directory.resolve("00000001.log"), RECORD_LENGTH + EmbeddedLog.HEADER_LENGTH);
+
+        List<String> replayed = new ArrayList<>();
+        try (EmbeddedLog log = open(replayed)) {
+            log.append((byte) 1, payload(42));
+        }
+        assertThat(replayed).containsExactly("0:payload-00");
+        assertThat(corruptFiles()).extracting(path -> path.getFileName().toString())
+                .containsExactlyInAnyOrder("00000002.log.corrupt", "00000003.log.corrupt");
+
+        replayed.clear();
+        open(replayed).close();
+        assertThat(replayed).containsExactly("0:payload-00", "1:payload-42");
+    }
+
+    @Test
+    void sealedSegmentsAreDeletedOnRelease() throws IOException {
+        List<String> replayed = new ArrayList<>();
+        try (EmbeddedLog log = open(replayed)) {
+            for (int i = 0; i < 5; i++) {
+                log.append((byte) 0, payload(i));
+            }
+            List<EmbeddedLog.Segment> sealed = log.seal();
+            assertThat(sealed).hasSize(2);
+            log.append((byte) 0, payload(4));
+            log.release(sealed);
+            assertThat(log.writtenBytes()).isEqualTo(RECORD_LENGTH);
+        }
+        assertThat(segmentFiles()).extracting(path -> path.getFileName().toString()).containsExactly("00000003.log");
+        open(replayed).close();
+        assertThat(replayed).containsExactly("0:payload-04");
+    }
+
+    private EmbeddedLog open(List<String> replayed) throws IOException {
+        EmbeddedLog log = new EmbeddedLog(directory, SEGMENT_SIZE);
+        log.replay((type, payload, location) ->
+                replayed.add(type + ":" + StandardCharsets.US_ASCII.decode(payload)));
+        return log;
+    }
+
+    private static byte[] payload(int i) {
+        return String.format("payload-%02d", i).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static List<String> expected(int from, int to) {
+        List<String> expected = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            expected.add((i % 3) + ":" + String.format("payload-%02d", i));
+        }
+        return expected;
+    }
+
+    private static void corrupt(Path segment, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, offset);
+            write(channel, offset, new byte[]{(byte) ~value.get(0)});
+        }
+    }
+
+    private static void write(Path segment, int offset, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            write(channel, offset, bytes);
+        }
+    }
+
+    private static void write(FileChannel channel, int offset, byte[] bytes) throws IOException {
+        channel.write(ByteBuffer.wrap(bytes), offset);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private List<Path> corruptFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".corrupt")).toList();
+        }
+    }
+}
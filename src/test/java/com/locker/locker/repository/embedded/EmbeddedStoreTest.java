@@ -0,0 +1,199 @@
+package com.locker.locker.repository.embedded;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.PasswordTombstone;
+import com.locker.locker.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedStore store;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void everythingWrittenIsThereAfterReopening() throws IOException {
+        store = open();
+        User alice = user("alice");
+        store.insertUser(alice);
+        List<PasswordEntry> written = entries(alice.getId(), 40);
+        store.putEntries(written, true);
+        store.updateEntry(written.get(0).getId(), entry -> true, entry -> entry.setNotes("changed"));
+        store.deleteEntry(written.get(1).getId());
+        store.putTombstone(tombstone(alice.getId(), written.get(1).getId(), 3));
+        store.incrementRevision(alice.getId(), 3);
+        store.updateUser(alice.getId(), user -> true, user -> user.setEmail("alice@new.example"));
+        List<byte[]> before = store.entryDocuments(alice.getId(), null, 0);
+
+        reopen();
+
+        User reopened = store.userByUsername("alice");
+        assertThat(reopened.getEmail()).isEqualTo("alice@new.example");
+        assertThat(reopened.getRevision()).isEqualTo(3);
+        assertThat(store.revision(alice.getId())).isEqualTo(3);
+        assertThat(store.entry(written.get(0).getId()).getNotes()).isEqualTo("changed");
+        assertThat(store.entry(written.get(1).getId())).isNull();
+        assertThat(store.entry(written.get(2).getId())).isEqualTo(written.get(2));
+        assertThat(store.entryDocuments(alice.getId(), null, 0)).containsExactlyElementsOf(before);
+        assertThat(store.tombstones(alice.getId(), 0, Long.MAX_VALUE, 10))
+                .extracting(PasswordTombstone::getEntryId)
+                .containsExactly(written.get(1).getId());
+    }
+
+    @Test
+    void corruptLastRecordIsLostAndTheStoreKeepsWorking() throws IOException {
+        store = open();
+        User alice = user("alice");
+        store.insertUser(alice);
+        List<PasswordEntry> written = entries(alice.getId(), 30);
+        store.putEntries(written, true);
+        store.close();
+        store = null;
+
+        corruptLastRecord();
+
+        store = open();
+        PasswordEntry last = written.get(written.size() - 1);
+        assertThat(store.entry(last.getId())).isNull();
+        for (PasswordEntry entry : written.subList(0, written.size() - 1)) {
+            assertThat(store.entry(entry.getId())).isEqualTo(entry);
+        }
+
+        // The torn record is written over and what follows survives another reopen
+        store.putEntries(List.of(last), true);
+        store.insertUser(user("bob"));
+        reopen();
+        assertThat(store.entry(last.getId())).isEqualTo(last);
+        assertThat(store.userByUsername("bob")).isNotNull();
+        assertThat(store.userByUsername("alice").getId()).isEqualTo(alice.getId());
+    }
+
+    @Test
+    void compactionKeepsTheStateAcrossReopening() throws IOException {
+        store = open();
+        User alice = user("alice");
+        store.insertUser(alice);
+        List<PasswordEntry> written = entries(alice.getId(), 20);
+        store.putEntries(written, true);
+        for (int round = 0; round < 5; round++) {
+            for (PasswordEntry entry : written) {
+                String notes = "round " + round;
+                store.updateEntry(entry.getId(), stored -> true, stored -> stored.setNotes(notes));
+            }
+            store.incrementRevision(alice.getId(), 1);
+        }
+        for (int i = 0; i < 5; i++) {
+            store.deleteEntry(written.get(i).getId());
+            store.putTombstone(tombstone(alice.getId(), written.get(i).getId(), 5 + i));
+        }
+        User userBefore = store.user(alice.getId());
+        List<byte[]> entriesBefore = store.entryDocuments(alice.getId(), null, 0);
+        List<PasswordTombstone> tombstonesBefore = store.tombstones(alice.getId(), 0, Long.MAX_VALUE, 100);
+        long writtenBefore = log().writtenBytes();
+
+        store.compact();
+        assertThat(log().writtenBytes()).isLessThan(writtenBefore / 2);
+        reopen();
+
+        assertThat(store.user(alice.getId())).isEqualTo(userBefore);
+        assertThat(store.revision(alice.getId())).isEqualTo(5);
+        assertThat(store.entryDocuments(alice.getId(), null, 0)).containsExactlyElementsOf(entriesBefore);
+        assertThat(store.tombstones(alice.getId(), 0, Long.MAX_VALUE, 100)).isEqualTo(tombstonesBefore);
+        assertThat(store.entry(written.get(0).getId())).isNull();
+        assertThat(store.entry(written.get(19).getId()).getNotes()).isEqualTo("round 4");
+    }
+
+    private EmbeddedStore open() throws IOException {
+        // Synced on every write and never compacted behind the test's back
+        return new EmbeddedStore(directory.toString(), SEGMENT_SIZE, 0, 3_600_000, 0.5);
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = open();
+    }
+
+    private EmbeddedLog log() {
+        return (EmbeddedLog) ReflectionTestUtils.getField(store, "records");
+    }
+
+    // Flips a payload byte of the newest record, as a write torn by a crash would leave it
+    private void corruptLastRecord() throws IOException {
+        Path newest;
+        try (Stream<Path> files = Files.list(directory)) {
+            newest = files.filter(path -> path.toString().endsWith(".log")).max(Path::compareTo).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer segment = ByteBuffer.allocate((int) channel.size());
+            channel.read(segment, 0);
+            int last = 0;
+            for (int position = 0; position + EmbeddedLog.HEADER_LENGTH <= segment.capacity()
+                    && segment.getInt(position) != 0; ) {
+                last = position;
+                position += EmbeddedLog.HEADER_LENGTH + segment.getInt(position);
+            }
+            int offset = last + EmbeddedLog.HEADER_LENGTH + 1;
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~segment.get(offset)}), offset);
+        }
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setMasterPasswordHash("hash-" + username);
+        user.setSalt("salt-" + username);
+        return user;
+    }
+
+    private static List<PasswordEntry> entries(String userId, int count) {
+        // Stored with millisecond precision
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        List<PasswordEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PasswordEntry entry = new PasswordEntry();
+            entry.setUserId(userId);
+            entry.setWebsite("site" + i + ".example");
+            entry.setUsername("user" + i);
+            entry.setSecret(new byte[]{1, (byte) i, 2, 3});
+            entry.setKeyVersion(PasswordEntry.DATA_KEY);
+            entry.setRevision((long) i);
+            entry.setCreatedAt(now.minusMinutes(i));
+            entry.setUpdatedAt(now.minusMinutes(i));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static PasswordTombstone tombstone(String userId, String entryId, long revision) {
+        return new PasswordTombstone(null, userId, entryId, revision, new Date());
+    }
+}
@@ -0,0 +1,166 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.repository.PasswordRepository.SecretUpdate;
+import com.locker.locker.repository.UserRepository;
+import com.locker.locker.security.kdf.KdfPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(KeyServicesTestConfig.class)
+class DataKeyServiceTest {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        KeyServicesTestConfig.properties(registry);
+    }
+
+    @Autowired
+    private DataKeyService dataKeyService;
+
+    @Autowired
+    private KdfPolicy kdfPolicy;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Test
+    void wrappedKeyOnlyUnwrapsWithItsMasterKey() throws Exception {
+        byte[] dataKey = CryptoUtils.generateDataKey();
+        byte[] masterKey = CryptoUtils.generateDataKey();
+        String wrapped = CryptoUtils.wrapKey(dataKey, masterKey);
+
+        assertThat(CryptoUtils.unwrapKey(wrapped, masterKey)).isEqualTo(dataKey);
+        assertThat(CryptoUtils.wrapKey(dataKey, masterKey)).isNotEqualTo(wrapped); // Fresh IV every time
+        assertThatThrownBy(() -> CryptoUtils.unwrapKey(wrapped, CryptoUtils.generateDataKey()))
+                .isInstanceOf(GeneralSecurityException.class);
+
+        // Sealing stores a verifier in place of the master key, which must not unwrap anything itself
+        User user = new User();
+        VaultKey.seal(user, dataKey, masterKey);
+        assertThat(user.effectiveKeyState()).isEqualTo(VaultKeyState.ENVELOPE);
+        assertThat(user.getMasterPasswordHash()).isNotEqualTo(Base64.getEncoder().encodeToString(masterKey));
+        assertThat(VaultKey.verify(user, masterKey)).isTrue();
+        assertThat(VaultKey.verify(user, CryptoUtils.generateDataKey())).isFalse();
+        assertThat(VaultKey.unwrapDataKey(user, masterKey)).isEqualTo(dataKey);
+    }
+
+    @Test
+    void legacyVaultIsMovedOntoADataKey() throws Exception {
+        User user = userRepository.insert(KeyServicesTestConfig.legacyUser("legacy", "master-one", KeyServicesTestConfig.OUTDATED));
+        byte[] masterKey = Base64.getDecoder().decode(user.getMasterPasswordHash());
+        List<PasswordEntry> entries = saveLegacyEntries(user, 7); // Three batches of up to three
+
+        User migrated = dataKeyService.migrate(user);
+
+        assertThat(migrated.effectiveKeyState()).isEqualTo(VaultKeyState.ENVELOPE);
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(stored.effectiveKeyState()).isEqualTo(VaultKeyState.ENVELOPE);
+        assertThat(VaultKey.verify(stored, masterKey)).isTrue();
+        assertEntriesReadable(entries, new VaultKey(VaultKey.unwrapDataKey(stored, masterKey), null));
+
+        // Migrating again changes nothing
+        assertThat(dataKeyService.migrate(stored).getWrappedDataKey()).isEqualTo(stored.getWrappedDataKey());
+    }
+
+    @Test
+    void halfDoneMigrationIsResumedWithTheClaimedKey() throws Exception {
+        User user = userRepository.insert(KeyServicesTestConfig.legacyUser("resumed", "master-one", KeyServicesTestConfig.OUTDATED));
+        byte[] masterKey = Base64.getDecoder().decode(user.getMasterPasswordHash());
+        List<PasswordEntry> entries = saveLegacyEntries(user, 5);
+
+        // A node claimed a data key and moved two entries before it stopped
+        byte[] dataKey = CryptoUtils.generateDataKey();
+        assertThat(userRepository.claimDataKey(user.getId(), CryptoUtils.wrapKey(dataKey, masterKey))).isTrue();
+        List<SecretUpdate> moved = new ArrayList<>();
+        for (PasswordEntry entry : entries.subList(0, 2)) {
+            String password = CryptoUtils.decryptPassword(entry.getEncryptedPassword(), new SecretKeySpec(masterKey, "AES"), entry.getIv());
+            moved.add(new SecretUpdate(entry, CryptoUtils.seal(password, new SecretKeySpec(dataKey, "AES")), PasswordEntry.DATA_KEY));
+        }
+        passwordRepository.updateSecrets(moved);
+        User interrupted = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(interrupted.effectiveKeyState()).isEqualTo(VaultKeyState.MIGRATING);
+
+        dataKeyService.migrate(interrupted);
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(stored.effectiveKeyState()).isEqualTo(VaultKeyState.ENVELOPE);
+        assertThat(VaultKey.unwrapDataKey(stored, masterKey)).isEqualTo(dataKey);
+        assertEntriesReadable(entries, new VaultKey(dataKey, null));
+    }
+
+    @Test
+    void secondMigrationOfTheSameVaultDefersToTheFirst() throws Exception {
+        User user = userRepository.insert(KeyServicesTestConfig.legacyUser("twice", "master-one", KeyServicesTestConfig.OUTDATED));
+        byte[] masterKey = Base64.getDecoder().decode(user.getMasterPasswordHash());
+        List<PasswordEntry> entries = saveLegacyEntries(user, 4);
+        User stale = userRepository.findById(user.getId()).orElseThrow();
+
+        dataKeyService.migrate(user);
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+
+        // Still LEGACY in this copy, so it tries to claim a key and finds the first one's
+        User second = dataKeyService.migrate(stale);
+        assertThat(second.effectiveKeyState()).isEqualTo(VaultKeyState.ENVELOPE);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getWrappedDataKey()).isEqualTo(stored.getWrappedDataKey());
+        assertEntriesReadable(entries, new VaultKey(VaultKey.unwrapDataKey(stored, masterKey), null));
+    }
+
+    @Test
+    void rewrapRacingAnotherRewrapLeavesTheFirstInPlace() throws Exception {
+        byte[] dataKey = CryptoUtils.generateDataKey();
+        User user = userRepository.insert(KeyServicesTestConfig.envelopeUser("rewrap", "master-one", kdfPolicy.current(), dataKey));
+        User first = userRepository.findById(user.getId()).orElseThrow();
+        User second = userRepository.findById(user.getId()).orElseThrow();
+
+        dataKeyService.rewrap(first, dataKey, "master-two", kdfPolicy.current());
+        assertThatThrownBy(() -> dataKeyService.rewrap(second, dataKey, "master-three", kdfPolicy.current()))
+                .isInstanceOfSatisfying(VaultAccessException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        byte[] winnerKey = CryptoUtils.deriveKey("master-two", stored.getSalt(), stored.getKdf());
+        assertThat(VaultKey.verify(stored, winnerKey)).isTrue();
+        assertThat(VaultKey.unwrapDataKey(stored, winnerKey)).isEqualTo(dataKey);
+        assertThat(VaultKey.verify(stored, CryptoUtils.deriveKey("master-three", stored.getSalt(), stored.getKdf()))).isFalse();
+        assertThat(VaultKey.verify(stored, CryptoUtils.deriveKey("master-one", stored.getSalt(), stored.getKdf()))).isFalse();
+    }
+
+    private List<PasswordEntry> saveLegacyEntries(User user, int count) throws Exception {
+        List<PasswordEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(passwordRepository.save(KeyServicesTestConfig.legacyEntry(user, "site" + i + ".example", "secret-" + i)));
+        }
+        return entries;
+    }
+
+    private void assertEntriesReadable(List<PasswordEntry> entries, VaultKey key) throws Exception {
+        try (Stream<PasswordEntry> stored = passwordRepository.streamEntries(entries.get(0).getUserId())) {
+            List<PasswordEntry> all = stored.toList();
+            assertThat(all).hasSameSizeAs(entries).allSatisfy(entry -> assertThat(entry.getKeyVersion()).isEqualTo(PasswordEntry.DATA_KEY));
+            for (PasswordEntry entry : all) {
+                assertThat(key.decrypt(entry)).isEqualTo("secret-" + entry.getWebsite().substring(4, entry.getWebsite().indexOf('.')));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.repository.UserRepository;
+import com.locker.locker.security.kdf.KdfPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(KeyServicesTestConfig.class)
+class KdfRehashServiceTest {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        KeyServicesTestConfig.properties(registry);
+    }
+
+    @Autowired
+    private KdfRehashService kdfRehashService;
+
+    @Autowired
+    private KdfPolicy kdfPolicy;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Test
+    void outdatedHashIsRewrappedWithoutTouchingEntries() throws Exception {
+        byte[] dataKey = CryptoUtils.generateDataKey();
+        User user = userRepository.insert(KeyServicesTestConfig.envelopeUser("rehash", "master-one", KeyServicesTestConfig.OUTDATED, dataKey));
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(user.getId());
+        new VaultKey(dataKey, null).encrypt(entry, "entry-secret");
+        passwordRepository.save(entry);
+        byte[] secret = entry.getSecret();
+        String oldSalt = user.getSalt();
+
+        byte[] oldKey = CryptoUtils.deriveKey("master-one", user.getSalt(), user.getKdf());
+        assertThat(kdfRehashService.rehashIfOutdated(user, "master-one", oldKey)).isTrue();
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(stored.getKdf()).isEqualTo(kdfPolicy.current());
+        assertThat(stored.getSalt()).isNotEqualTo(oldSalt);
+        byte[] newKey = CryptoUtils.deriveKey("master-one", stored.getSalt(), stored.getKdf());
+        assertThat(VaultKey.verify(stored, newKey)).isTrue();
+        assertThat(VaultKey.verify(stored, oldKey)).isFalse();
+        assertThat(VaultKey.unwrapDataKey(stored, newKey)).isEqualTo(dataKey);
+
+        // Same ciphertext, still readable with the data key now wrapped under the new master key
+        PasswordEntry reread = passwordRepository.findById(entry.getId()).orElseThrow();
+        assertThat(reread.getSecret()).isEqualTo(secret);
+        assertThat(new VaultKey(VaultKey.unwrapDataKey(stored, newKey), null).decrypt(reread)).isEqualTo("entry-secret");
+    }
+
+    @Test
+    void currentHashIsLeftAlone() throws Exception {
+        User user = userRepository.insert(KeyServicesTestConfig.envelopeUser("current", "master-one", kdfPolicy.current(),
+                CryptoUtils.generateDataKey()));
+        String hash = user.getMasterPasswordHash();
+
+        byte[] key = CryptoUtils.deriveKey("master-one", user.getSalt(), user.getKdf());
+        assertThat(kdfRehashService.rehashIfOutdated(user, "master-one", key)).isFalse();
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getMasterPasswordHash()).isEqualTo(hash);
+    }
+
+    @Test
+    void vaultWithoutDataKeyIsNotRehashed() throws Exception {
+        User user = userRepository.insert(KeyServicesTestConfig.legacyUser("legacy", "master-one", KeyServicesTestConfig.OUTDATED));
+        PasswordEntry entry = passwordRepository.save(KeyServicesTestConfig.legacyEntry(user, "example.com", "entry-secret"));
+
+        // The master key is still the entry key here, so changing it would strand the entries
+        byte[] key = CryptoUtils.deriveKey("master-one", user.getSalt(), user.getKdf());
+        assertThat(kdfRehashService.rehashIfOutdated(user, "master-one", key)).isFalse();
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(stored.effectiveKeyState()).isEqualTo(VaultKeyState.LEGACY);
+        assertThat(stored.getSalt()).isEqualTo(user.getSalt());
+        assertThat(stored.getKdf()).isEqualTo(KeyServicesTestConfig.OUTDATED);
+        PasswordEntry reread = passwordRepository.findById(entry.getId()).orElseThrow();
+        assertThat(new VaultKey(null, key).decrypt(reread)).isEqualTo("entry-secret");
+    }
+
+    @Test
+    void rehashLosingToAConcurrentChangeKeepsTheWinner() throws Exception {
+        byte[] dataKey = CryptoUtils.generateDataKey();
+        User user = userRepository.insert(KeyServicesTestConfig.envelopeUser("raced", "master-one", KeyServicesTestConfig.OUTDATED, dataKey));
+        byte[] oldKey = CryptoUtils.deriveKey("master-one", user.getSalt(), user.getKdf());
+        User stale = userRepository.findById(user.getId()).orElseThrow();
+
+        // Another login rehashes between this login's read of the user and its own rehash
+        assertThat(kdfRehashService.rehashIfOutdated(user, "master-one", oldKey)).isTrue();
+        User winner = userRepository.findById(user.getId()).orElseThrow();
+
+        assertThatThrownBy(() -> kdfRehashService.rehashIfOutdated(stale, "master-one", oldKey))
+                .isInstanceOfSatisfying(VaultAccessException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(stored.getSalt()).isEqualTo(winner.getSalt());
+        assertThat(stored.getWrappedDataKey()).isEqualTo(winner.getWrappedDataKey());
+        byte[] key = CryptoUtils.deriveKey("master-one", stored.getSalt(), stored.getKdf());
+        assertThat(VaultKey.unwrapDataKey(stored, key)).isEqualTo(dataKey);
+    }
+}
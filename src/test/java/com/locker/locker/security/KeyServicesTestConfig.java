@@ -0,0 +1,88 @@
+package com.locker.locker.security;
+
+import com.locker.locker.model.KdfSpec;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.User;
+import com.locker.locker.model.VaultKeyState;
+import com.locker.locker.repository.embedded.EmbeddedPasswordRepository;
+import com.locker.locker.repository.embedded.EmbeddedStore;
+import com.locker.locker.repository.embedded.EmbeddedUserRepository;
+import com.locker.locker.security.kdf.KdfPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Map;
+
+// The key services over an embedded store in a temporary directory, so conditional updates behave as
+// they do in production without a Mongo server. The policy is pinned at a cheap PBKDF2 cost that is still
+// above OUTDATED, so hashes made with OUTDATED are due for an upgrade.
+@Configuration
+@Import({EmbeddedStore.class, EmbeddedUserRepository.class, EmbeddedPasswordRepository.class, KdfPolicy.class,
+        KdfExecutor.class, VaultKeyCache.class, UserCache.class, DataKeyService.class, KdfRehashService.class})
+class KeyServicesTestConfig {
+
+    static final KdfSpec OUTDATED = new KdfSpec(KdfSpec.PBKDF2, Map.of("iterations", 1000));
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    static void properties(DynamicPropertyRegistry registry) {
+        try {
+            String path = Files.createTempDirectory("key-services").toString();
+            registry.add("vault.storage", () -> "embedded");
+            registry.add("vault.embedded.path", () -> path);
+            registry.add("vault.kdf.algorithm", () -> KdfSpec.PBKDF2);
+            registry.add("vault.kdf.cost", () -> "2000");
+            registry.add("vault.data-key-migration.batch-size", () -> "3");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A user as registration stores it now: the data key wrapped under the master key, whose verifier is the hash
+    static User envelopeUser(String username, String masterPassword, KdfSpec kdf, byte[] dataKey) throws Exception {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setSalt(CryptoUtils.generateSalt());
+        user.setKdf(kdf);
+        VaultKey.seal(user, dataKey, CryptoUtils.deriveKey(masterPassword, user.getSalt(), kdf));
+        return user;
+    }
+
+    // A user from before data keys: the stored hash is the master key and entries are encrypted with it
+    static User legacyUser(String username, String masterPassword, KdfSpec kdf) throws Exception {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setSalt(CryptoUtils.generateSalt());
+        user.setKdf(kdf);
+        user.setMasterPasswordHash(CryptoUtils.hashPassword(masterPassword, user.getSalt(), kdf));
+        user.setKeyState(VaultKeyState.LEGACY);
+        return user;
+    }
+
+    // An entry in the original Base64 format, encrypted with the legacy master key
+    static PasswordEntry legacyEntry(User user, String website, String password) throws Exception {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(user.getId());
+        entry.setWebsite(website);
+        entry.setUsername("someone");
+        String iv = CryptoUtils.generateIv();
+        entry.setIv(iv);
+        entry.setEncryptedPassword(CryptoUtils.encryptPassword(password,
+                new SecretKeySpec(Base64.getDecoder().decode(user.getMasterPasswordHash()), "AES"), iv));
+        return entry;
+    }
+}
@@ -0,0 +1,149 @@
+package com.locker.locker.security.throttle;
+
+import com.locker.locker.security.LoginThrottledException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class LoginThrottleTest {
+
+    private static final long INTERVAL = 12_000; // 5 per minute
+    private static final long BURST = 5 * INTERVAL;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private LocalThrottleStore store;
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalThrottleStore(1000, 600_000, () -> Instant.ofEpochMilli(now.get()));
+        throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "throttleStore", store);
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        ReflectionTestUtils.setField(throttle, "userCapacity", 5);
+        ReflectionTestUtils.setField(throttle, "userRefillPerMinute", 5);
+        ReflectionTestUtils.setField(throttle, "ipCapacity", 30);
+        ReflectionTestUtils.setField(throttle, "ipRefillPerMinute", 60);
+    }
+
+    @Test
+    void fullBucketAllowsItsCapacityAtOnce() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(store.tryAcquire("key", INTERVAL, BURST)).isZero();
+        }
+        assertThat(store.tryAcquire("key", INTERVAL, BURST)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void emptiedBucketRefillsOneTokenPerInterval() {
+        for (int i = 0; i < 5; i++) {
+            store.tryAcquire("key", INTERVAL, BURST);
+        }
+        now.addAndGet(INTERVAL - 1_000);
+        assertThat(store.tryAcquire("key", INTERVAL, BURST)).isEqualTo(1_000);
+        now.addAndGet(1_000);
+        assertThat(store.tryAcquire("key", INTERVAL, BURST)).isZero();
+        assertThat(store.tryAcquire("key", INTERVAL, BURST)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void idleBucketRefillsOnlyUpToItsCapacity() {
+        store.tryAcquire("key", INTERVAL, BURST);
+        now.addAndGet(60 * 60_000);
+        for (int i = 0; i < 5; i++) {
+            assertThat(store.tryAcquire("key", INTERVAL, BURST)).isZero();
+        }
+        assertThat(store.tryAcquire("key", INTERVAL, BURST)).isPositive();
+    }
+
+    @Test
+    void rejectedAttemptsDoNotPushTheRefillBack() {
+        for (int i = 0; i < 5; i++) {
+            store.tryAcquire("key", INTERVAL, BURST);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(store.tryAcquire("key", INTERVAL, BURST)).isEqualTo(INTERVAL);
+        }
+        now.addAndGet(INTERVAL);
+        assertThat(store.tryAcquire("key", INTERVAL, BURST)).isZero();
+    }
+
+    @Test
+    void concurrentAttemptsNeverOverdrawTheBucket() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> attempts = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                attempts.add(() -> {
+                    int taken = 0;
+                    for (int i = 0; i < 1_000; i++) {
+                        taken += store.tryAcquire("shared", 1_000, 50 * 1_000L) == 0 ? 1 : 0;
+                    }
+                    return taken;
+                });
+            }
+            int taken = 0;
+            for (Future<Integer> result : pool.invokeAll(attempts)) {
+                taken += result.get();
+            }
+            assertThat(taken).isEqualTo(50);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void usernameOverItsLimitGets429WithRetryAfter() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            throttle.check("alice", "10.0.0." + i);
+        }
+        // Usernames are compared case-insensitively, and a new address does not help
+        LoginThrottledException throttled = catchThrowableOfType(LoginThrottledException.class,
+                () -> throttle.check("ALICE", "10.0.1.1"));
+        ResponseEntity<?> response = throttled.toResponse();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("12");
+
+        // Part of a second still to wait is rounded up, so a client retrying on time is let in
+        now.addAndGet(INTERVAL - 500);
+        throttled = catchThrowableOfType(LoginThrottledException.class, () -> throttle.check("alice", "10.0.1.2"));
+        assertThat(throttled.toResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        now.addAndGet(500);
+        throttle.check("alice", "10.0.1.3");
+    }
+
+    @Test
+    void addressSprayingManyUsernamesIsCapped() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            throttle.check("user" + i, "192.0.2.7");
+        }
+        assertThatThrownBy(() -> throttle.check("user30", "192.0.2.7"))
+                .isInstanceOfSatisfying(LoginThrottledException.class, e -> assertThat(
+                        e.toResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1"));
+        throttle.check("user30", "192.0.2.8");
+    }
+
+    @Test
+    void disabledThrottleLetsEverythingThrough() throws Exception {
+        ReflectionTestUtils.setField(throttle, "enabled", false);
+        for (int i = 0; i < 100; i++) {
+            throttle.check("alice", "10.0.0.1");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.locker.locker.transfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvImportReaderTest {
+
+    @Test
+    void quotedFieldsKeepSeparatorsQuotesAndLineBreaks() throws Exception {
+        try (CsvImportReader reader = reader("url,username,password,notes\n"
+                + "example.com,\"doe, jane\",\"say \"\"hi\"\"\",\"line one\nline two\"\n")) {
+            ImportRow row = reader.next();
+            assertThat(row.getWebsite()).isEqualTo("example.com");
+            assertThat(row.getUsername()).isEqualTo("doe, jane");
+            assertThat(row.getPassword()).isEqualTo("say \"hi\"");
+            assertThat(row.getNotes()).isEqualTo("line one\nline two");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void crlfLineEndingsBlankLinesAndByteOrderMarkAreAccepted() throws Exception {
+        try (CsvImportReader reader = reader("\uFEFFName,Login_Password\r\none.example,p1\r\n\r\ntwo.example,p2")) {
+            ImportRow first = reader.next();
+            assertThat(first.getWebsite()).isEqualTo("one.example");
+            assertThat(first.getPassword()).isEqualTo("p1");
+            assertThat(first.getRowNumber()).isEqualTo(1);
+            ImportRow second = reader.next();
+            assertThat(second.getWebsite()).isEqualTo("two.example");
+            assertThat(second.getPassword()).isEqualTo("p2");
+            assertThat(second.getRowNumber()).isEqualTo(3);
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void unterminatedQuoteFailsTheRowAndEndsTheInput() throws Exception {
+        try (CsvImportReader reader = reader("url,password\nexample.com,\"never closed\nother.example,p2\n")) {
+            assertThatThrownBy(reader::next)
+                    .isInstanceOf(ImportRowException.class)
+                    .hasMessageContaining("Unterminated");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void oversizedFieldSkipsOnlyItsRecord() throws Exception {
+        String huge = "x".repeat(64 * 1024 + 1);
+        try (CsvImportReader reader = reader("url,password\nbig.example," + huge + "\nnext.example,p2\n")) {
+            assertThatThrownBy(reader::next)
+                    .isInstanceOf(ImportRowException.class)
+                    .hasMessageContaining("Field longer than");
+            assertThat(reader.next().getWebsite()).isEqualTo("next.example");
+        }
+    }
+
+    @Test
+    void recordWithTooManyFieldsSkipsOnlyItsRecord() throws Exception {
+        String commas = ",".repeat(1_000_000);
+        try (CsvImportReader reader = reader("url,password\nwide.example" + commas + "\nnext.example,p2\n")) {
+            assertThatThrownBy(reader::next)
+                    .isInstanceOf(ImportRowException.class)
+                    .hasMessageContaining("more than 256 fields");
+            ImportRow next = reader.next();
+            assertThat(next.getWebsite()).isEqualTo("next.example");
+            assertThat(next.getPassword()).isEqualTo("p2");
+        }
+    }
+
+    @Test
+    void recordWiderThanTheHeaderIsRejected() throws Exception {
+        try (CsvImportReader reader = reader("url,password\na.example,p1,extra\nb.example,p2\n")) {
+            assertThatThrownBy(reader::next)
+                    .isInstanceOf(ImportRowException.class)
+                    .hasMessageContaining("Expected 2 columns but found 3");
+            assertThat(reader.next().getWebsite()).isEqualTo("b.example");
+        }
+    }
+
+    private static CsvImportReader reader(String csv) {
+        return new CsvImportReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,159 @@
+package com.locker.locker.transfer;
+
+import com.locker.locker.dto.PasswordEntryResponse;
+import com.locker.locker.dto.PasswordEntrySummary;
+import com.locker.locker.model.PasswordEntry;
+import com.locker.locker.model.User;
+import com.locker.locker.repository.PasswordRepository;
+import com.locker.locker.repository.UserRepository;
+import com.locker.locker.repository.embedded.EmbeddedPasswordRepository;
+import com.locker.locker.repository.embedded.EmbeddedStore;
+import com.locker.locker.repository.embedded.EmbeddedUserRepository;
+import com.locker.locker.search.VaultSearchIndex;
+import com.locker.locker.security.CryptoUtils;
+import com.locker.locker.security.VaultKey;
+import com.locker.locker.sync.VaultRevisions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@SpringJUnitConfig(VaultImporterTest.Config.class)
+class VaultImporterTest {
+
+    @Configuration
+    @Import({EmbeddedStore.class, EmbeddedUserRepository.class, EmbeddedPasswordRepository.class,
+            VaultRevisions.class, VaultSearchIndex.class, VaultImporter.class})
+    static class Config {
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        String path = Files.createTempDirectory("vault-import").toString();
+        registry.add("vault.storage", () -> "embedded");
+        registry.add("vault.embedded.path", () -> path);
+        registry.add("vault.import.batch-size", () -> "2");
+    }
+
+    @Autowired
+    private VaultImporter vaultImporter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordRepository passwordRepository;
+
+    @Autowired
+    private VaultRevisions vaultRevisions;
+
+    @Test
+    void rowWithoutUsernameIsStoredEmptyAndReadsBack() throws Exception {
+        User user = new User();
+        user.setUsername("importer");
+        user.setEmail("importer@example.com");
+        String userId = userRepository.insert(user).getId();
+        VaultKey key = new VaultKey(CryptoUtils.generateDataKey(), null);
+
+        String csv = "url,username,password,notes\n"
+                + "one.example,,first-secret,\n"
+                + "two.example,bob,second-secret,hello\n"
+                + "three.example,,third-secret,\n";
+        List<String> errors = new ArrayList<>();
+        VaultImporter.ImportResult result;
+        try (CsvImportReader reader = new CsvImportReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            result = vaultImporter.importRows(userId, key, reader, new ImportListener() {
+                @Override
+                public void onRowError(long rowNumber, String message) {
+                    errors.add(rowNumber + ": " + message);
+                }
+
+                @Override
+                public void onProgress(long processed, long imported, long failed) {
+                }
+            });
+        }
+        assertThat(errors).isEmpty();
+        assertThat(result.imported()).isEqualTo(3);
+
+        List<PasswordEntry> entries;
+        try (Stream<PasswordEntry> stream = passwordRepository.streamEntries(userId)) {
+            entries = stream.toList();
+        }
+        PasswordEntry first = entries.stream().filter(entry -> entry.getWebsite().equals("one.example")).findFirst().orElseThrow();
+        assertThat(first.getUsername()).isEmpty();
+
+        // What GET /api/passwords/{id} and decrypt-batch return for it
+        PasswordEntry stored = passwordRepository.findById(first.getId()).orElseThrow();
+        Map<String, Object> revealed = PasswordEntryResponse.withPassword(stored, key.decrypt(stored));
+        assertThat(revealed).containsEntry("username", "").containsEntry("password", "first-secret");
+
+        // What the listings and /changes return
+        try (Stream<PasswordEntrySummary> summaries = passwordRepository.streamSummaries(userId)) {
+            assertThat(summaries.map(PasswordEntryResponse::summary))
+                    .hasSize(3)
+                    .allSatisfy(summary -> assertThat(summary.get("username")).isNotNull());
+        }
+    }
+
+    @Test
+    @DirtiesContext
+    void rejectedInsertReleasesItsRevisionLease() throws Exception {
+        User user = new User();
+        user.setUsername("late-importer");
+        user.setEmail("late-importer@example.com");
+        String userId = userRepository.insert(user).getId();
+        VaultKey key = new VaultKey(CryptoUtils.generateDataKey(), null);
+
+        vaultImporter.shutdown();
+        String csv = "url,password\none.example,first-secret\ntwo.example,second-secret\n";
+        try (CsvImportReader reader = new CsvImportReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            assertThatThrownBy(() -> vaultImporter.importRows(userId, key, reader, new ImportListener() {
+                @Override
+                public void onRowError(long rowNumber, String message) {
+                }
+
+                @Override
+                public void onProgress(long processed, long imported, long failed) {
+                }
+            })).isInstanceOf(RejectedExecutionException.class);
+        }
+
+        // A leaked lease would keep the stripe's read lock, and this load would wait for it forever
+        long revision = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> vaultRevisions.stableRevision(userId));
+        assertThat(revision).isEqualTo(2);
+    }
+
+    @Test
+    void responsesTolerateEntriesWithMissingFields() {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setId("legacy");
+
+        assertThat(PasswordEntryResponse.summary(entry))
+                .containsEntry("website", "")
+                .containsEntry("username", "")
+                .containsEntry("notes", "")
+                .containsEntry("createdAt", null);
+        assertThat(PasswordEntryResponse.withPassword(entry, "secret"))
+                .containsEntry("username", "")
+                .containsEntry("password", "secret");
+    }
+}